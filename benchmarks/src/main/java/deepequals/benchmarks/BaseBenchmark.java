@@ -0,0 +1,30 @@
+package deepequals.benchmarks;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// the settings shared by all the benchmarks, overridable from the command line. Several
+// forks, as a single one leaves the error of a score as large as the score itself
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(BaseBenchmark.FORKS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class BaseBenchmark {
+    static final int FORKS = 3;
+
+    // the benchmarks measure comparisons of equal objects: one that fails measures less
+    protected static void ensureEqual(final boolean... results) {
+        for (final boolean r : results) {
+            if (!r) {
+                throw new IllegalStateException("the objects under comparison are not equal");
+            }
+        }
+    }
+}
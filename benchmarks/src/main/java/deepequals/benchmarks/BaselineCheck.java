@@ -0,0 +1,134 @@
+package deepequals.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+// compares the results of a run, in JMH's csv format, against the baseline: throughput
+// may not drop and the allocation per operation (from -prof gc) may not grow by more
+// than the tolerance. A change only counts when the confidence intervals of both scores,
+// the score give or take its error, do not overlap: within them it is noise. Exits with
+// 1 when either regresses.
+//
+//   java -cp target/benchmarks.jar deepequals.benchmarks.BaselineCheck \
+//           baseline.csv results.csv [tolerance in percent, 10 by default]
+public final class BaselineCheck {
+    private static final String ALLOCATION = ":gc.alloc.rate.norm";
+    // allocation figures are noisy around zero
+    private static final double ALLOCATION_SLACK = 16;
+
+    private BaselineCheck() {}
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineCheck <baseline.csv> <results.csv> [tolerance %]");
+            System.exit(2);
+        }
+        final Map<String, Score> baseline = read(args[0]);
+        final Map<String, Score> results = read(args[1]);
+        final double tolerance = (args.length > 2 ? Double.parseDouble(args[2]) : 10) / 100;
+
+        final List<String> regressions = new ArrayList<>();
+        for (final Map.Entry<String, Score> e : results.entrySet()) {
+            final Score before = baseline.get(e.getKey());
+            if (before == null) {
+                continue;
+            }
+            final Score after = e.getValue();
+            final boolean allocation = e.getKey().contains(ALLOCATION);
+            final boolean regressed = allocation
+                    ? after.score > before.score * (1 + tolerance) + ALLOCATION_SLACK
+                            && after.low() > before.high()
+                    : after.score < before.score * (1 - tolerance)
+                            && after.high() < before.low();
+            final String line = format("%-100s %14.1f +- %-12.1f -> %14.1f +- %-12.1f %s %+6.1f%%",
+                                       e.getKey(),
+                                       before.score,
+                                       before.error,
+                                       after.score,
+                                       after.error,
+                                       allocation ? "B/op " : "ops/s",
+                                       before.score == 0 ? 0 : (after.score - before.score) * 100 / before.score);
+            System.out.println((regressed ? "REGRESSION " : "           ") + line);
+            if (regressed) {
+                regressions.add(e.getKey());
+            }
+        }
+        if (!regressions.isEmpty()) {
+            System.out.println(format("%d regression(s)", regressions.size()));
+            System.exit(1);
+        }
+    }
+
+    // a key made of the benchmark name and its parameters, mapped to the score and its
+    // error. Only the primary results and the normalized allocation rate are kept.
+    private static Map<String, Score> read(final String file) throws IOException {
+        final List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        final List<String> header = split(lines.get(0));
+        final int score = header.indexOf("Score");
+        final int error = header.indexOf("Score Error (99.9%)");
+        final Map<String, Score> result = new LinkedHashMap<>();
+        for (final String line : lines.subList(1, lines.size())) {
+            final List<String> columns = split(line);
+            final String benchmark = columns.get(0);
+            if (benchmark.contains(":") && !benchmark.endsWith(ALLOCATION)) {
+                continue;
+            }
+            final StringBuilder key = new StringBuilder(benchmark);
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ")
+                        && i < columns.size()
+                        && !columns.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(columns.get(i));
+                }
+            }
+            result.put(key.toString(), new Score(Double.parseDouble(columns.get(score)),
+                                                 Double.parseDouble(columns.get(error))));
+        }
+        return result;
+    }
+
+    private static List<String> split(final String line) {
+        final List<String> result = new ArrayList<>();
+        final StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (final char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                result.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        result.add(column.toString());
+        return result;
+    }
+
+    private static final class Score {
+        final double score;
+        // of the 99.9% confidence interval; JMH gives none, NaN, for a single sample
+        final double error;
+
+        Score(final double score, final double error) {
+            this.score = score;
+            this.error = Double.isNaN(error) ? 0 : error;
+        }
+
+        double high() {
+            return score + error;
+        }
+
+        double low() {
+            return score - error;
+        }
+    }
+}
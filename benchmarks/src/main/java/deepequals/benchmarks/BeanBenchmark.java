@@ -0,0 +1,62 @@
+package deepequals.benchmarks;
+
+import com.google.common.reflect.TypeToken;
+import deepequals.DeepEqualizer;
+import deepequals.benchmarks.Fixtures.Box;
+import deepequals.benchmarks.Fixtures.Flat;
+import deepequals.benchmarks.Fixtures.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static deepequals.benchmarks.Fixtures.flat;
+import static deepequals.benchmarks.Fixtures.options;
+import static deepequals.benchmarks.Fixtures.trade;
+
+// single objects: a flat bean, a four level deep one and generic nesting. See
+// HandWrittenBenchmark for the hand-written equals of the flat bean
+@SuppressWarnings({"serial", "UnstableApiUsage"})
+@State(Scope.Benchmark)
+public class BeanBenchmark extends BaseBenchmark {
+    private static final TypeToken<Box<Box<Box<Flat>>>> NESTED = new TypeToken<Box<Box<Box<Flat>>>>() {};
+
+    @Param({"interpreted", "compiled"})
+    public String engine;
+
+    private DeepEqualizer equalizer;
+    private Flat flat1;
+    private Flat flat2;
+    private Trade trade1;
+    private Trade trade2;
+    private Box<Box<Box<Flat>>> nested1;
+    private Box<Box<Box<Flat>>> nested2;
+
+    @Benchmark
+    public boolean deepBean() {
+        return equalizer.deepEquals(Trade.class, trade1, trade2);
+    }
+
+    @Benchmark
+    public boolean flatBean() {
+        return equalizer.deepEquals(Flat.class, flat1, flat2);
+    }
+
+    @Benchmark
+    public boolean genericBean() {
+        return equalizer.deepEquals(NESTED, nested1, nested2);
+    }
+
+    @Setup
+    public void setUp() {
+        equalizer = options(engine).build();
+        flat1 = flat(42);
+        flat2 = flat(42);
+        trade1 = trade(42);
+        trade2 = trade(42);
+        nested1 = new Box<>(new Box<>(new Box<>(flat(42))));
+        nested2 = new Box<>(new Box<>(new Box<>(flat(42))));
+        ensureEqual(deepBean(), flatBean(), genericBean());
+    }
+}
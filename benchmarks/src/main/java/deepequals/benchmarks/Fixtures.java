@@ -0,0 +1,255 @@
+package deepequals.benchmarks;
+
+import deepequals.DeepEquals.WithOptions;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+import static deepequals.DeepEquals.withOptions;
+
+// the object models being compared. Every factory call returns new instances, so that
+// the objects under comparison are equal without being identical.
+public final class Fixtures {
+    public enum Side {
+        Buy, Sell
+    }
+
+    private Fixtures() {}
+
+    public static Flat flat(final int i) {
+        return new Flat(i,
+                        i * 31L,
+                        i / 7.0,
+                        "flat-" + i,
+                        i % 2 == 0,
+                        LocalDate.of(2020, 1, 1).plusDays(i % 365),
+                        i % 100,
+                        i % 2 == 0 ? Side.Buy : Side.Sell);
+    }
+
+    // "interpreted" or "compiled"
+    public static WithOptions options(final String engine) {
+        return "compiled".equals(engine) ? withOptions().compiled() : withOptions();
+    }
+
+    public static Trade trade(final int i) {
+        final Issuer issuer = new Issuer("issuer-" + i % 50, new Country("C" + i % 10));
+        return new Trade(i,
+                         new Instrument("ISIN" + i % 500, issuer),
+                         new Issuer("counterparty-" + i % 20, new Country("C" + i % 7)),
+                         LocalDate.of(2020, 1, 1).plusDays(i % 365),
+                         i % 1000,
+                         100 + i / 100.0);
+    }
+
+    public static final class Box<T> {
+        private final T value;
+
+        public Box(final T value) {
+            this.value = value;
+        }
+
+        public T value() {
+            return value;
+        }
+    }
+
+    public static final class Country {
+        private final String code;
+
+        public Country(final String code) {
+            this.code = code;
+        }
+
+        public String code() {
+            return code;
+        }
+    }
+
+    public static final class Flat {
+        private final int id;
+        private final long version;
+        private final double price;
+        private final String name;
+        private final boolean active;
+        private final LocalDate date;
+        private final Integer quantity;
+        private final Side side;
+
+        public Flat(final int id,
+                    final long version,
+                    final double price,
+                    final String name,
+                    final boolean active,
+                    final LocalDate date,
+                    final Integer quantity,
+                    final Side side) {
+            this.id = id;
+            this.version = version;
+            this.price = price;
+            this.name = name;
+            this.active = active;
+            this.date = date;
+            this.quantity = quantity;
+            this.side = side;
+        }
+
+        public boolean active() {
+            return active;
+        }
+
+        // what deepequals is measured against on a flat DTO
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Flat)) {
+                return false;
+            }
+            final Flat that = (Flat) o;
+            return id == that.id
+                    && version == that.version
+                    && Double.compare(price, that.price) == 0
+                    && active == that.active
+                    && Objects.equals(name, that.name)
+                    && Objects.equals(date, that.date)
+                    && Objects.equals(quantity, that.quantity)
+                    && side == that.side;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, version, price, name, active, date, quantity, side);
+        }
+
+        public LocalDate date() {
+            return date;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public double price() {
+            return price;
+        }
+
+        public Integer quantity() {
+            return quantity;
+        }
+
+        public Side side() {
+            return side;
+        }
+
+        public long version() {
+            return version;
+        }
+    }
+
+    public static final class Instrument {
+        private final String isin;
+        private final Issuer issuer;
+
+        public Instrument(final String isin, final Issuer issuer) {
+            this.isin = isin;
+            this.issuer = issuer;
+        }
+
+        public String isin() {
+            return isin;
+        }
+
+        public Issuer issuer() {
+            return issuer;
+        }
+    }
+
+    public static final class Issuer {
+        private final String name;
+        private final Country country;
+
+        public Issuer(final String name, final Country country) {
+            this.name = name;
+            this.country = country;
+        }
+
+        public Country country() {
+            return country;
+        }
+
+        public String name() {
+            return name;
+        }
+    }
+
+    public static final class Pair<A, B> {
+        private final A first;
+        private final B second;
+
+        public Pair(final A first, final B second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        public A first() {
+            return first;
+        }
+
+        public B second() {
+            return second;
+        }
+    }
+
+    public static final class Trade {
+        private final long id;
+        private final Instrument instrument;
+        private final Issuer counterparty;
+        private final LocalDate tradeDate;
+        private final int quantity;
+        private final double price;
+
+        public Trade(final long id,
+                     final Instrument instrument,
+                     final Issuer counterparty,
+                     final LocalDate tradeDate,
+                     final int quantity,
+                     final double price) {
+            this.id = id;
+            this.instrument = instrument;
+            this.counterparty = counterparty;
+            this.tradeDate = tradeDate;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public Issuer counterparty() {
+            return counterparty;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public Instrument instrument() {
+            return instrument;
+        }
+
+        public double price() {
+            return price;
+        }
+
+        public int quantity() {
+            return quantity;
+        }
+
+        public LocalDate tradeDate() {
+            return tradeDate;
+        }
+    }
+}
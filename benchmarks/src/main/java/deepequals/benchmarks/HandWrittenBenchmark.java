@@ -0,0 +1,29 @@
+package deepequals.benchmarks;
+
+import deepequals.benchmarks.Fixtures.Flat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static deepequals.benchmarks.Fixtures.flat;
+
+// the hand-written equals of the flat bean of BeanBenchmark, to measure the engines
+// against: a benchmark of its own, as it takes no engine
+@State(Scope.Benchmark)
+public class HandWrittenBenchmark extends BaseBenchmark {
+    private Flat flat1;
+    private Flat flat2;
+
+    @Benchmark
+    public boolean flatBean() {
+        return flat1.equals(flat2);
+    }
+
+    @Setup
+    public void setUp() {
+        flat1 = flat(42);
+        flat2 = flat(42);
+        ensureEqual(flatBean());
+    }
+}
@@ -0,0 +1,82 @@
+package deepequals.benchmarks;
+
+import com.google.common.reflect.TypeToken;
+import deepequals.DeepEqualizer;
+import deepequals.benchmarks.Fixtures.Box;
+import deepequals.benchmarks.Fixtures.Flat;
+import deepequals.benchmarks.Fixtures.Trade;
+import deepequals.comparator.TypeTokenMatcherComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static deepequals.DeepEquals.comparator;
+import static deepequals.DeepEquals.field;
+import static deepequals.MethodPredicates.methods;
+import static deepequals.benchmarks.Fixtures.flat;
+import static deepequals.benchmarks.Fixtures.options;
+import static deepequals.benchmarks.Fixtures.trade;
+import static java.lang.Math.abs;
+
+// a configuration where most comparisons go through a comparator or are ignored
+@SuppressWarnings({"serial", "UnstableApiUsage"})
+@State(Scope.Benchmark)
+public class OverrideBenchmark extends BaseBenchmark {
+    private static final TypeToken<List<Trade>> TRADES = new TypeToken<List<Trade>>() {};
+    private static final TypeToken<List<Box<Flat>>> BOXES = new TypeToken<List<Box<Flat>>>() {};
+
+    @Param({"interpreted", "compiled"})
+    public String engine;
+
+    private DeepEqualizer equalizer;
+    private List<Trade> trades1;
+    private List<Trade> trades2;
+    private List<Box<Flat>> boxes1;
+    private List<Box<Flat>> boxes2;
+
+    @Benchmark
+    public boolean matchers() {
+        return equalizer.deepEquals(BOXES, boxes1, boxes2);
+    }
+
+    @Setup
+    public void setUp() {
+        equalizer = options(engine)
+                .override(comparator(LocalDate.class, (x, y) -> x.getYear() == y.getYear()),
+                          comparator(double.class, (x, y) -> abs(x - y) < 1e-6),
+                          comparator(field(Trade.class, "quantity"),
+                                     (Integer x, Integer y) -> x / 10 == y / 10),
+                          new TypeTokenMatcherComparator(
+                                  (x, y) -> ((Box<?>) x).value() != null
+                                          && ((Box<?>) y).value() != null) {
+                              @Override
+                              public boolean matches(final TypeToken tt) {
+                                  return tt.getRawType().equals(Box.class);
+                              }
+                          })
+                .ignore(methods(Flat.class, "name", "version"))
+                .build();
+        trades1 = new ArrayList<>();
+        trades2 = new ArrayList<>();
+        boxes1 = new ArrayList<>();
+        boxes2 = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            trades1.add(trade(i));
+            trades2.add(trade(i));
+            boxes1.add(new Box<>(flat(i)));
+            boxes2.add(new Box<>(flat(i)));
+        }
+        ensureEqual(matchers(), typesAndFields());
+    }
+
+    @Benchmark
+    public boolean typesAndFields() {
+        return equalizer.deepEquals(TRADES, trades1, trades2);
+    }
+}
@@ -0,0 +1,125 @@
+package deepequals.benchmarks;
+
+import com.google.common.reflect.TypeToken;
+import deepequals.DeepEqualizer;
+import deepequals.benchmarks.Fixtures.Box;
+import deepequals.benchmarks.Fixtures.Pair;
+import deepequals.benchmarks.Fixtures.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static deepequals.benchmarks.Fixtures.options;
+import static deepequals.benchmarks.Fixtures.trade;
+
+// lists in strict and lenient order, maps, sets and arrays of primitives and beans
+@SuppressWarnings({"serial", "UnstableApiUsage"})
+@State(Scope.Benchmark)
+public class SequenceBenchmark extends BaseBenchmark {
+    private static final TypeToken<List<Trade>> TRADES = new TypeToken<List<Trade>>() {};
+    private static final TypeToken<Map<String, Trade>> TRADES_BY_ID = new TypeToken<Map<String, Trade>>() {};
+    private static final TypeToken<Set<String>> IDS = new TypeToken<Set<String>>() {};
+    private static final TypeToken<List<Pair<String, Box<Integer>>>> PAIRS =
+            new TypeToken<List<Pair<String, Box<Integer>>>>() {};
+
+    @Param({"interpreted", "compiled"})
+    public String engine;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private DeepEqualizer strict;
+    private DeepEqualizer lenient;
+    private List<Trade> list1;
+    private List<Trade> list2;
+    private List<Trade> shuffled;
+    private Map<String, Trade> map1;
+    private Map<String, Trade> map2;
+    private Set<String> set1;
+    private Set<String> set2;
+    private int[] ints1;
+    private int[] ints2;
+    private Trade[] array1;
+    private Trade[] array2;
+    private List<Pair<String, Box<Integer>>> pairs1;
+    private List<Pair<String, Box<Integer>>> pairs2;
+
+    @Benchmark
+    public boolean beanArray() {
+        return strict.deepEquals(Trade[].class, array1, array2);
+    }
+
+    @Benchmark
+    public boolean genericList() {
+        return strict.deepEquals(PAIRS, pairs1, pairs2);
+    }
+
+    @Benchmark
+    public boolean intArray() {
+        return strict.deepEquals(int[].class, ints1, ints2);
+    }
+
+    @Benchmark
+    public boolean lenientList() {
+        return lenient.deepEquals(TRADES, list1, shuffled);
+    }
+
+    @Benchmark
+    public boolean map() {
+        return strict.deepEquals(TRADES_BY_ID, map1, map2);
+    }
+
+    @Benchmark
+    public boolean set() {
+        return strict.deepEquals(IDS, set1, set2);
+    }
+
+    @Setup
+    public void setUp() {
+        strict = options(engine).build();
+        lenient = options(engine).orderLenient().build();
+        list1 = new ArrayList<>();
+        list2 = new ArrayList<>();
+        map1 = new HashMap<>();
+        map2 = new HashMap<>();
+        set1 = new HashSet<>();
+        set2 = new HashSet<>();
+        ints1 = new int[size];
+        ints2 = new int[size];
+        pairs1 = new ArrayList<>();
+        pairs2 = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            list1.add(trade(i));
+            list2.add(trade(i));
+            map1.put("T" + i, trade(i));
+            map2.put("T" + i, trade(i));
+            set1.add("T" + i);
+            set2.add("T" + i);
+            ints1[i] = i;
+            ints2[i] = i;
+            pairs1.add(new Pair<>("P" + i, new Box<>(i)));
+            pairs2.add(new Pair<>("P" + i, new Box<>(i)));
+        }
+        shuffled = new ArrayList<>(list2);
+        Collections.shuffle(shuffled, new Random(42));
+        array1 = list1.toArray(new Trade[0]);
+        array2 = list2.toArray(new Trade[0]);
+        ensureEqual(beanArray(), genericList(), intArray(), lenientList(), map(), set(), strictList());
+    }
+
+    @Benchmark
+    public boolean strictList() {
+        return strict.deepEquals(TRADES, list1, list2);
+    }
+}
@@ -0,0 +1,75 @@
+package deepequals.benchmarks;
+
+import deepequals.DeepEqualizer;
+import deepequals.Tolerance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static deepequals.DeepEquals.comparator;
+import static deepequals.benchmarks.Fixtures.options;
+import static java.lang.Math.abs;
+
+// arrays of doubles equal within a tolerance: a comparator looping over them, against the
+// built-in tolerance, without and with the vector API (Java 17 and later)
+@State(Scope.Benchmark)
+public class ToleranceBenchmark extends BaseBenchmark {
+    private static final double EPSILON = 1e-6;
+
+    @Param({"interpreted", "compiled"})
+    public String engine;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private DeepEqualizer comparator;
+    private DeepEqualizer tolerance;
+    private double[] doubles1;
+    private double[] doubles2;
+
+    @Benchmark
+    public boolean looping() {
+        return comparator.deepEquals(double[].class, doubles1, doubles2);
+    }
+
+    @Benchmark
+    public boolean scalar() {
+        return tolerance.deepEquals(double[].class, doubles1, doubles2);
+    }
+
+    @Setup
+    public void setUp() {
+        comparator = options(engine)
+                .override(comparator(double[].class, (x, y) -> {
+                    if (x.length != y.length) {
+                        return false;
+                    }
+                    for (int i = 0; i < x.length; i++) {
+                        if (abs(x[i] - y[i]) > EPSILON) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }))
+                .build();
+        tolerance = options(engine)
+                .tolerance(Tolerance.absolute(EPSILON))
+                .build();
+        doubles1 = new double[size];
+        doubles2 = new double[size];
+        for (int i = 0; i < size; i++) {
+            doubles1[i] = i / 7.0;
+            doubles2[i] = i / 7.0 + EPSILON / 2;
+        }
+        ensureEqual(looping(), scalar());
+    }
+
+    @Benchmark
+    @Fork(value = FORKS, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public boolean vectorized() {
+        return tolerance.deepEquals(double[].class, doubles1, doubles2);
+    }
+}
@@ -0,0 +1,234 @@
+package deepequals.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+// generates DeepEquals_Foo, the deepequals.GeneratedAccessors of every class Foo annotated
+// with @DeepEquatable. The properties follow the rules of reflection in deepequals: the
+// public final fields, static or not, and the public instance methods, declared or
+// inherited, other than those named like the methods of Object. Methods that take
+// arguments or return void are left out and make the class lenient only.
+@SupportedAnnotationTypes(DeepEquatableProcessor.ANNOTATION)
+public final class DeepEquatableProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "deepequals.DeepEquatable";
+    private static final String PREFIX = "DeepEquals_";
+    private static final Set<String> OBJECT_METHOD_NAMES = new HashSet<>(Arrays.asList(
+            "equals", "getClass", "hashCode", "notify", "notifyAll", "toString", "wait"));
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment env) {
+        final TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null) {
+            return false;
+        }
+        for (final Element e : env.getElementsAnnotatedWith(annotation)) {
+            if (supported(e)) {
+                generate((TypeElement) e);
+            }
+        }
+        return true;
+    }
+
+    private void error(final Element e, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+    }
+
+    private void generate(final TypeElement type) {
+        final List<Property> properties = new ArrayList<>();
+        boolean lenientOnly = false;
+        final DeclaredType owner = (DeclaredType) type.asType();
+        // the fields first, as reflection lists them first
+        for (final Element m : processingEnv.getElementUtils().getAllMembers(type)) {
+            final Set<Modifier> modifiers = m.getModifiers();
+            if (m.getKind() == ElementKind.FIELD
+                    && modifiers.contains(Modifier.PUBLIC)
+                    && modifiers.contains(Modifier.FINAL)) {
+                properties.add(new Property(
+                        m.getSimpleName().toString(),
+                        m.getSimpleName().toString(),
+                        processingEnv.getTypeUtils().asMemberOf(owner, m)));
+            }
+        }
+        for (final Element m : processingEnv.getElementUtils().getAllMembers(type)) {
+            final Set<Modifier> modifiers = m.getModifiers();
+            if (m.getKind() != ElementKind.METHOD
+                    || !modifiers.contains(Modifier.PUBLIC)
+                    || modifiers.contains(Modifier.STATIC)
+                    || OBJECT_METHOD_NAMES.contains(m.getSimpleName().toString())) {
+                continue;
+            }
+            final ExecutableType method = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(owner, m);
+            if (!((ExecutableElement) m).getParameters().isEmpty()
+                    || method.getReturnType().getKind() == TypeKind.VOID) {
+                lenientOnly = true;
+                continue;
+            }
+            properties.add(new Property(
+                    m.getSimpleName().toString(),
+                    m.getSimpleName() + "()",
+                    method.getReturnType()));
+        }
+        write(type, properties, lenientOnly);
+    }
+
+    // the generated class calls the members from the package of the class
+    private boolean supported(final Element e) {
+        if (e.getKind() != ElementKind.CLASS) {
+            error(e, format("@DeepEquatable applies to classes only, not to %s", e));
+            return false;
+        }
+        final TypeElement type = (TypeElement) e;
+        if (!type.getTypeParameters().isEmpty()) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING,
+                    format("%s is generic: its properties will be read by reflection", type),
+                    e);
+            return false;
+        }
+        for (Element t = type; t.getKind().isClass(); t = t.getEnclosingElement()) {
+            final TypeElement te = (TypeElement) t;
+            if (te.getNestingKind() == NestingKind.LOCAL || te.getNestingKind() == NestingKind.ANONYMOUS) {
+                error(e, format("@DeepEquatable does not apply to local classes: %s", type));
+                return false;
+            }
+            if (te.getModifiers().contains(Modifier.PRIVATE)) {
+                error(e, format("%s must be visible from its package", type));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the literal of a type: a class literal when the erasure is the type, or stands for
+    // a type variable of the method, a TypeToken otherwise
+    private String typeLiteral(final TypeMirror t) {
+        final TypeMirror erasure = processingEnv.getTypeUtils().erasure(t);
+        if (t.getKind() == TypeKind.TYPEVAR || processingEnv.getTypeUtils().isSameType(erasure, t)) {
+            return erasure + ".class";
+        }
+        return format("new com.google.common.reflect.TypeToken<%s>() {}.getType()", t);
+    }
+
+    private void write(final TypeElement type,
+                       final List<Property> properties,
+                       final boolean lenientOnly) {
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        final String owner = type.getQualifiedName().toString();
+        final String name = PREFIX + (pkg.isUnnamed()
+                ? owner
+                : owner.substring(pkg.getQualifiedName().length() + 1)).replace('.', '_');
+        final String qualifiedName = pkg.isUnnamed() ? name : pkg.getQualifiedName() + "." + name;
+        try (PrintWriter out = new PrintWriter(
+                processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+            if (!pkg.isUnnamed()) {
+                out.printf("package %s;%n%n", pkg.getQualifiedName());
+            }
+            out.printf("// generated by %s from %s: do not edit%n", getClass().getName(), owner);
+            out.printf("@SuppressWarnings({\"rawtypes\", \"serial\", \"static\", \"UnstableApiUsage\"})%n");
+            out.printf("public final class %s implements deepequals.GeneratedAccessors {%n", name);
+
+            out.printf("    @Override%n");
+            out.printf("    public boolean equal(final Object x, final Object y, final int idx) {%n");
+            out.printf("        final %s a = (%s) x;%n", owner, owner);
+            out.printf("        final %s b = (%s) y;%n", owner, owner);
+            out.printf("        switch (idx) {%n");
+            for (int i = 0; i < properties.size(); i++) {
+                final Property p = properties.get(i);
+                final TypeKind kind = p.type.getKind();
+                if (!kind.isPrimitive()) {
+                    continue;
+                }
+                if (kind == TypeKind.FLOAT) {
+                    out.printf("            case %d: return Float.floatToIntBits(a.%s) == Float.floatToIntBits(b.%s);%n",
+                               i, p.access, p.access);
+                } else if (kind == TypeKind.DOUBLE) {
+                    out.printf("            case %d: return Double.doubleToLongBits(a.%s) == Double.doubleToLongBits(b.%s);%n",
+                               i, p.access, p.access);
+                } else {
+                    out.printf("            case %d: return a.%s == b.%s;%n", i, p.access, p.access);
+                }
+            }
+            out.printf("            default: throw new IllegalArgumentException(\"not a primitive: \" + idx);%n");
+            out.printf("        }%n");
+            out.printf("    }%n%n");
+
+            out.printf("    @Override%n");
+            out.printf("    public Object get(final Object x, final int idx) {%n");
+            out.printf("        final %s o = (%s) x;%n", owner, owner);
+            out.printf("        switch (idx) {%n");
+            for (int i = 0; i < properties.size(); i++) {
+                out.printf("            case %d: return o.%s;%n", i, properties.get(i).access);
+            }
+            out.printf("            default: throw new IndexOutOfBoundsException(String.valueOf(idx));%n");
+            out.printf("        }%n");
+            out.printf("    }%n%n");
+
+            out.printf("    @Override%n");
+            out.printf("    public boolean lenientOnly() {%n");
+            out.printf("        return %b;%n", lenientOnly);
+            out.printf("    }%n%n");
+
+            out.printf("    @Override%n");
+            out.printf("    public String[] names() {%n");
+            out.printf("        return new String[] {%n");
+            for (final Property p : properties) {
+                out.printf("                \"%s\",%n", p.name);
+            }
+            out.printf("        };%n");
+            out.printf("    }%n%n");
+
+            out.printf("    @Override%n");
+            out.printf("    public java.lang.reflect.Type[] types() {%n");
+            out.printf("        return new java.lang.reflect.Type[] {%n");
+            for (final Property p : properties) {
+                out.printf("                %s,%n", typeLiteral(p.type));
+            }
+            out.printf("        };%n");
+            out.printf("    }%n");
+            out.printf("}%n");
+        } catch (final IOException ex) {
+            error(type, format("cannot write %s: %s", qualifiedName, ex.getMessage()));
+        }
+    }
+
+    private static final class Property {
+        final String name;
+        // how the generated code reads it off an instance
+        final String access;
+        final TypeMirror type;
+
+        Property(final String name, final String access, final TypeMirror type) {
+            this.name = name;
+            this.access = access;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package deepequals.processor;
+
+import deepequals.DeepEquals;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static deepequals.DeepEquals.withOptions;
+import static org.junit.jupiter.api.Assertions.*;
+
+// compiles the classes in src/test/resources/sample with the processor and compares them
+class DeepEquatableProcessorTest {
+    @TempDir
+    static Path out;
+    private static Recording loader;
+
+    @BeforeAll
+    static void compile() throws Exception {
+        final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager files = javac.getStandardFileManager(null, null, null);
+        final List<File> sources = new ArrayList<>();
+        for (final String name : Arrays.asList("Base", "Command", "Order")) {
+            sources.add(Paths.get(resource("sample/" + name + ".java").toURI()).toFile());
+        }
+        final JavaCompiler.CompilationTask task = javac.getTask(
+                null,
+                files,
+                null,
+                Arrays.asList("-d", out.toString(),
+                              "-classpath", System.getProperty("java.class.path"),
+                              "-source", "8",
+                              "-target", "8",
+                              "-Xlint:-options"),
+                null,
+                files.getJavaFileObjectsFromFiles(sources));
+        task.setProcessors(Collections.singletonList(new DeepEquatableProcessor()));
+        assertTrue(task.call());
+        loader = new Recording(out.toUri().toURL());
+    }
+
+    @Test
+    void generatesAccessors() {
+        assertTrue(Files.exists(out.resolve("sample/DeepEquals_Order.class")));
+        assertTrue(Files.exists(out.resolve("sample/DeepEquals_Order_Line.class")));
+        assertFalse(Files.exists(out.resolve("sample/DeepEquals_Base.class")));
+    }
+
+    @Test
+    void comparesThroughTheGeneratedAccessors() throws Exception {
+        final Class<?> order = loader.loadClass("sample.Order");
+        assertTrue(DeepEquals.deepEqualsTypeUnsafe(order, order(order, "a", "x"), order(order, "a", "x")));
+        assertTrue(loader.loaded.contains("sample.DeepEquals_Order"));
+        assertTrue(loader.loaded.contains("sample.DeepEquals_Order_Line"));
+
+        assertFalse(DeepEquals.deepEqualsTypeUnsafe(order, order(order, "a", "x"), order(order, "b", "x")));
+        final List<String> paths = new ArrayList<>();
+        @SuppressWarnings("unchecked") final Class<Object> c = (Class<Object>) order;
+        DeepEquals.diff(c,
+                        order(order, "a", "x"),
+                        order(order, "a", "y"),
+                        (path, left, right, reason) -> paths.add(path));
+        assertEquals(Collections.singletonList("lines[0].sku"), paths);
+    }
+
+    @Test
+    void keepsTheRulesOfReflection() throws Exception {
+        final Class<?> command = loader.loadClass("sample.Command");
+        final Object x = command.getConstructor(int.class).newInstance(1);
+        final Object y = command.getConstructor(int.class).newInstance(1);
+        assertThrows(IllegalArgumentException.class,
+                     () -> DeepEquals.deepEqualsTypeUnsafe(command, x, y));
+        assertTrue(withOptions().typeLenient().deepEqualsTypeUnsafe(command, x, y));
+        assertFalse(withOptions()
+                            .typeLenient()
+                            .deepEqualsTypeUnsafe(command, x, command.getConstructor(int.class).newInstance(2)));
+    }
+
+    private static Object order(final Class<?> order, final String id, final String sku) throws Exception {
+        final Object line = loader.loadClass("sample.Order$Line").getConstructor(String.class).newInstance(sku);
+        return order.getConstructor(String.class, int.class, double.class, List.class)
+                .newInstance(id, 2, 0.5, Collections.singletonList(line));
+    }
+
+    private static URL resource(final String name) {
+        return DeepEquatableProcessorTest.class.getClassLoader().getResource(name);
+    }
+
+    // remembers the classes loaded through it
+    private static final class Recording extends URLClassLoader {
+        final Set<String> loaded = ConcurrentHashMap.newKeySet();
+
+        Recording(final URL url) {
+            super(new URL[] {url}, DeepEquatableProcessorTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            loaded.add(name);
+            return super.loadClass(name, resolve);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package sample;
+
+public abstract class Base<T> {
+    private final T id;
+
+    protected Base(final T id) {
+        this.id = id;
+    }
+
+    public T id() {
+        return id;
+    }
+}
@@ -0,0 +1,19 @@
+package sample;
+
+import deepequals.DeepEquatable;
+
+@DeepEquatable
+public class Command {
+    private final int n;
+
+    public Command(final int n) {
+        this.n = n;
+    }
+
+    public int n() {
+        return n;
+    }
+
+    public void run() {
+    }
+}
@@ -0,0 +1,40 @@
+package sample;
+
+import deepequals.DeepEquatable;
+
+import java.util.List;
+
+@DeepEquatable
+public class Order extends Base<String> {
+    public final int quantity;
+    private final double price;
+    private final List<Line> lines;
+
+    public Order(final String id, final int quantity, final double price, final List<Line> lines) {
+        super(id);
+        this.quantity = quantity;
+        this.price = price;
+        this.lines = lines;
+    }
+
+    public List<Line> lines() {
+        return lines;
+    }
+
+    public double price() {
+        return price;
+    }
+
+    @DeepEquatable
+    public static class Line {
+        private final String sku;
+
+        public Line(final String sku) {
+            this.sku = sku;
+        }
+
+        public String sku() {
+            return sku;
+        }
+    }
+}
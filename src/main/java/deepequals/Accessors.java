@@ -0,0 +1,298 @@
+package deepequals;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.invoke.MethodType.methodType;
+import static java.lang.reflect.Modifier.isPublic;
+import static java.lang.reflect.Modifier.isStatic;
+import static java.util.Arrays.stream;
+
+// turns getters into accessors once, at plan-build time. In order of preference:
+// a LambdaMetafactory-spun Function (invokes the method directly), a MethodHandle,
+// and finally plain reflection for members that cannot be unreflected. Primitive
+// getters are read without boxing the same way: spun, else through a MethodHandle.
+@SuppressWarnings("unchecked")
+final class Accessors {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private Accessors() {}
+
+    static Function<Object, Object> accessor(final Method m) {
+        final MethodHandles.Lookup lookup = spinnable(m) ? Lookups.in(m.getDeclaringClass()) : null;
+        if (lookup != null) {
+            try {
+                return spun(m, lookup);
+            } catch (final Throwable ignored) {
+                // falls back to a method handle
+            }
+        }
+        try {
+            return handle(LOOKUP.unreflect(m));
+        } catch (final IllegalAccessException ignored) {
+            return reflective(m);
+        }
+    }
+
+    static Function<Object, Object> accessor(final Field f) {
+        try {
+            return handle(getter(f));
+        } catch (final IllegalAccessException ignored) {
+            return reflective(f);
+        }
+    }
+
+    static ToDoubleFunction<Object> doubleValue(final Method m) {
+        if (m.getReturnType() != float.class && m.getReturnType() != double.class) {
+            return null;
+        }
+        final Object spun = spunPrimitive(m);
+        if (spun != null) {
+            return (ToDoubleFunction<Object>) spun;
+        }
+        try {
+            return doubleValue(LOOKUP.unreflect(m));
+        } catch (final IllegalAccessException ignored) {
+            return null;
+        }
+    }
+
+    static ToDoubleFunction<Object> doubleValue(final Field f) {
+        if (f.getType() != float.class && f.getType() != double.class) {
+            return null;
+        }
+        try {
+            return doubleValue(getter(f));
+        } catch (final IllegalAccessException ignored) {
+            return null;
+        }
+    }
+
+    // the equality of the values of a primitive getter of two objects, the same as that
+    // of their boxes but without boxing them; null for getters of reference types
+    static BiPredicate<Object, Object> primitiveEquality(final Method m) {
+        if (!m.getReturnType().isPrimitive()) {
+            return null;
+        }
+        final Object spun = spunPrimitive(m);
+        if (spun != null) {
+            return primitiveEquality(spun);
+        }
+        try {
+            return primitiveEquality(LOOKUP.unreflect(m));
+        } catch (final IllegalAccessException ignored) {
+            return null;
+        }
+    }
+
+    static BiPredicate<Object, Object> primitiveEquality(final Field f) {
+        if (!f.getType().isPrimitive()) {
+            return null;
+        }
+        try {
+            return primitiveEquality(getter(f));
+        } catch (final IllegalAccessException ignored) {
+            return null;
+        }
+    }
+
+    // a handle on the method itself, made accessible when its getter was built
+    static MethodHandle unreflected(final Method m) {
+        try {
+            return LOOKUP.unreflect(m);
+        } catch (final IllegalAccessException ignored) {
+            return null;
+        }
+    }
+
+    static MethodHandle unreflected(final Field f) {
+        try {
+            return getter(f);
+        } catch (final IllegalAccessException ignored) {
+            return null;
+        }
+    }
+
+    private static ToDoubleFunction<Object> doubleValue(final MethodHandle mh) {
+        final MethodHandle h = mh.asType(methodType(double.class, Object.class));
+        return x -> {
+            try {
+                return (double) h.invokeExact(x);
+            } catch (final Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    // takes the object, which a static field ignores
+    private static MethodHandle getter(final Field f) throws IllegalAccessException {
+        final MethodHandle result = LOOKUP.unreflectGetter(f);
+        return isStatic(f.getModifiers())
+                ? MethodHandles.dropArguments(result, 0, f.getDeclaringClass())
+                : result;
+    }
+
+    private static Function<Object, Object> handle(final MethodHandle mh) {
+        final MethodHandle generic = mh.asType(methodType(Object.class, Object.class));
+        return x -> {
+            try {
+                return (Object) generic.invokeExact(x);
+            } catch (final Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    // float and double compare like Float.equals and Double.equals; the other types
+    // widen to long without changing their equality
+    private static BiPredicate<Object, Object> primitiveEquality(final MethodHandle mh) {
+        final Class<?> t = mh.type().returnType();
+        if (t == boolean.class) {
+            final MethodHandle h = mh.asType(methodType(boolean.class, Object.class));
+            return (x, y) -> {
+                try {
+                    return (boolean) h.invokeExact(x) == (boolean) h.invokeExact(y);
+                } catch (final Throwable e) {
+                    throw propagate(e);
+                }
+            };
+        }
+        if (t == float.class) {
+            final MethodHandle h = mh.asType(methodType(float.class, Object.class));
+            return (x, y) -> {
+                try {
+                    return floatToIntBits((float) h.invokeExact(x))
+                            == floatToIntBits((float) h.invokeExact(y));
+                } catch (final Throwable e) {
+                    throw propagate(e);
+                }
+            };
+        }
+        if (t == double.class) {
+            final MethodHandle h = mh.asType(methodType(double.class, Object.class));
+            return (x, y) -> {
+                try {
+                    return doubleToLongBits((double) h.invokeExact(x))
+                            == doubleToLongBits((double) h.invokeExact(y));
+                } catch (final Throwable e) {
+                    throw propagate(e);
+                }
+            };
+        }
+        final MethodHandle h = mh.asType(methodType(long.class, Object.class));
+        return (x, y) -> {
+            try {
+                return (long) h.invokeExact(x) == (long) h.invokeExact(y);
+            } catch (final Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    // the same over a spun reader, see spunPrimitive
+    private static BiPredicate<Object, Object> primitiveEquality(final Object reader) {
+        if (reader instanceof Predicate) {
+            final Predicate<Object> p = (Predicate<Object>) reader;
+            return (x, y) -> p.test(x) == p.test(y);
+        }
+        if (reader instanceof ToDoubleFunction) {
+            final ToDoubleFunction<Object> f = (ToDoubleFunction<Object>) reader;
+            return (x, y) -> doubleToLongBits(f.applyAsDouble(x)) == doubleToLongBits(f.applyAsDouble(y));
+        }
+        final ToLongFunction<Object> f = (ToLongFunction<Object>) reader;
+        return (x, y) -> f.applyAsLong(x) == f.applyAsLong(y);
+    }
+
+    private static Function<Object, Object> reflective(final Field f) {
+        return x -> {
+            try {
+                return f.get(x);
+            } catch (final IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        };
+    }
+
+    private static Function<Object, Object> reflective(final Method m) {
+        return x -> {
+            try {
+                return m.invoke(x);
+            } catch (final Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    // the spun class calls the method directly, so it must be accessible from the lookup
+    // of its class, see Lookups. Checked exceptions would escape undeclared, so those
+    // methods stay on the method handle path.
+    private static boolean spinnable(final Method m) {
+        return isPublic(m.getModifiers())
+                && stream(m.getExceptionTypes()).allMatch(e ->
+                        RuntimeException.class.isAssignableFrom(e)
+                                || Error.class.isAssignableFrom(e));
+    }
+
+    private static Function<Object, Object> spun(final Method m, final MethodHandles.Lookup lookup)
+            throws Throwable {
+        final CallSite site = LambdaMetafactory.metafactory(
+                lookup,
+                "apply",
+                methodType(Function.class),
+                methodType(Object.class, Object.class),
+                lookup.unreflect(m),
+                methodType(Object.class, m.getDeclaringClass()));
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    // a Predicate for a boolean getter, a ToDoubleFunction for a float or double one and a
+    // ToLongFunction for the others, widening the value, which keeps its equality; null
+    // when it cannot be spun
+    private static Object spunPrimitive(final Method m) {
+        final MethodHandles.Lookup lookup = spinnable(m) ? Lookups.in(m.getDeclaringClass()) : null;
+        if (lookup == null) {
+            return null;
+        }
+        final Class<?> t = m.getReturnType();
+        final Class<?> reader;
+        final String name;
+        final Class<?> read;
+        if (t == boolean.class) {
+            reader = Predicate.class;
+            name = "test";
+            read = boolean.class;
+        } else if (t == float.class || t == double.class) {
+            reader = ToDoubleFunction.class;
+            name = "applyAsDouble";
+            read = double.class;
+        } else {
+            reader = ToLongFunction.class;
+            name = "applyAsLong";
+            read = long.class;
+        }
+        try {
+            final CallSite site = LambdaMetafactory.metafactory(
+                    lookup,
+                    name,
+                    methodType(reader),
+                    methodType(read, Object.class),
+                    lookup.unreflect(m),
+                    methodType(t, m.getDeclaringClass()));
+            return site.getTarget().invoke();
+        } catch (final Throwable ignored) {
+            return null;
+        }
+    }
+}
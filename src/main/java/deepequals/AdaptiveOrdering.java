@@ -0,0 +1,62 @@
+package deepequals;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the order in which the getters of each type are checked, learned from the mismatches
+// seen by the equalizers built with adaptiveOrdering(...). Every type counts which of its
+// properties tell objects apart and, every so many comparisons, puts the most telling
+// ones first. The learned orders can be stored and loaded back, e.g. at startup, so that
+// a new process does not start from scratch. One line per type: the type, '=' and the
+// names of its getters, comma separated.
+public final class AdaptiveOrdering {
+    private static final Splitter NAMES = Splitter.on(',').omitEmptyStrings().trimResults();
+
+    // by type name
+    private final Map<String, List<String>> orders = new ConcurrentHashMap<>();
+
+    public static AdaptiveOrdering load(final Reader reader) throws IOException {
+        final AdaptiveOrdering result = new AdaptiveOrdering();
+        final BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            final int idx = line.lastIndexOf('=');
+            if (idx > 0) {
+                result.orders.put(line.substring(0, idx).trim(),
+                                  ImmutableList.copyOf(NAMES.split(line.substring(idx + 1))));
+            }
+        }
+        return result;
+    }
+
+    public void store(final Writer writer) throws IOException {
+        for (final Map.Entry<String, List<String>> e : orders.entrySet()) {
+            writer.write(e.getKey());
+            writer.write('=');
+            writer.write(String.join(",", e.getValue()));
+            writer.write(System.lineSeparator());
+        }
+        writer.flush();
+    }
+
+    @Override
+    public String toString() {
+        return orders.toString();
+    }
+
+    List<String> get(final String type) {
+        return orders.get(type);
+    }
+
+    void put(final String type, final List<String> names) {
+        orders.put(type, names);
+    }
+}
@@ -0,0 +1,107 @@
+package deepequals;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.TypeToken;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+// the outcome of comparing two objects: every difference between them, as found by diff.
+// It can be brought up to date after some subtrees of either object changed, given their
+// paths, by comparing those subtrees only; everything else is taken to be unchanged.
+// Immutable: recompare returns a new instance.
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+public final class Comparison<T> {
+    private final Differ differ;
+    private final TypeToken<T> typeToken;
+    private final List<Difference> differences;
+
+    Comparison(final Differ differ, final TypeToken<T> typeToken, final List<Difference> differences) {
+        this.differ = differ;
+        this.typeToken = typeToken;
+        this.differences = ImmutableList.copyOf(differences);
+    }
+
+    public boolean equal() {
+        return differences.isEmpty();
+    }
+
+    // hands the differences to the sink, in the order they were found
+    public void forEachDifference(final DiffSink sink) {
+        differences.forEach(d -> sink.difference(d.path, d.left, d.right, d.reason));
+    }
+
+    // compares the subtrees of x and y at the dirty paths again, x and y being the objects
+    // compared before or their updated copies. The paths are those of DiffSink, e.g.
+    // "customer.address" or "lines[3]", and the empty path stands for the objects
+    // themselves. A path is followed as far as both objects go and as far as the engine
+    // compares part by part: the subtree compared again may be larger than the one named.
+    public Comparison<T> recompare(final T x, final T y, final Iterable<String> dirtyPaths) {
+        final List<String> compared = new ArrayList<>();
+        final Set<Difference> found = new LinkedHashSet<>();
+        for (final String dirty : dirtyPaths) {
+            compared.add(differ.diffAt(typeToken, x, y, dirty, collect(found)));
+        }
+        final List<Difference> result = new ArrayList<>();
+        for (final Difference d : differences) {
+            if (compared.stream().noneMatch(c -> within(d.path, c))) {
+                result.add(d);
+            }
+        }
+        result.addAll(found);
+        return new Comparison<>(differ, typeToken, result);
+    }
+
+    public int size() {
+        return differences.size();
+    }
+
+    static DiffSink collect(final Collection<Difference> differences) {
+        return (path, left, right, reason) -> differences.add(new Difference(path, left, right, reason));
+    }
+
+    // whether the path is the given subtree or goes through it
+    private static boolean within(final String path, final String subtree) {
+        if (subtree.isEmpty() || path.equals(subtree)) {
+            return true;
+        }
+        return path.startsWith(subtree)
+                && (path.charAt(subtree.length()) == '.' || path.charAt(subtree.length()) == '[');
+    }
+
+    // equal to another one at the same path with equal values and reason: a subtree that
+    // is dirty twice, e.g. through "a" and "a.b", reports its differences twice
+    static final class Difference {
+        final String path;
+        final Object left;
+        final Object right;
+        final DiffSink.Reason reason;
+
+        Difference(final String path, final Object left, final Object right, final DiffSink.Reason reason) {
+            this.path = path;
+            this.left = left;
+            this.right = right;
+            this.reason = reason;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Difference that = (Difference) o;
+            return path.equals(that.path)
+                    && Objects.equals(left, that.left)
+                    && Objects.equals(right, that.right)
+                    && reason == that.reason;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, reason);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+
+// notified of the progress of a comparison, on the thread that makes it: listeners of
+// parallel comparisons must be thread-safe. Every node, i.e. every pair of values
+// compared, is entered and exited, in depth first order; the root is at depth 0. A node
+// that throws is not exited.
+@SuppressWarnings("UnstableApiUsage")
+public interface ComparisonListener {
+    default void enter(final TypeToken<?> tt, final Object x, final Object y, final int depth) {}
+
+    default void exit(final TypeToken<?> tt, final boolean equal, final int depth) {}
+
+    // the node where a difference was found, just before it is exited. Its ancestors
+    // are exited as unequal as well, without being reported here.
+    default void mismatch(final TypeToken<?> tt, final Object x, final Object y) {}
+
+    // a comparator of the given type decided
+    default void override(final TypeToken<?> tt) {}
+
+    // a comparator of the given property of the given type decided
+    default void override(final TypeToken<?> owner, final String property) {}
+
+    // the comparison came back to the given type: with memoizeByIdentity() the pair of
+    // objects is taken to be equal, otherwise a CycleException follows
+    default void cycle(final TypeToken<?> tt) {}
+}
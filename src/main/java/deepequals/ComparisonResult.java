@@ -0,0 +1,106 @@
+package deepequals;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+
+// the outcome of check: whether two objects are deep equal and, when they are not, the
+// first difference between them: its path, the values on either side and why they
+// differ. Nothing is built unless the objects differ.
+public final class ComparisonResult {
+    static final ComparisonResult EQUAL = new ComparisonResult(ImmutableList.of(), null, null, null);
+
+    private final List<Segment> path;
+    private final Object left;
+    private final Object right;
+    private final DiffSink.Reason reason;
+
+    ComparisonResult(final List<Segment> path,
+                     final Object left,
+                     final Object right,
+                     final DiffSink.Reason reason) {
+        this.path = path;
+        this.left = left;
+        this.right = right;
+        this.reason = reason;
+    }
+
+    public boolean equal() {
+        return reason == null;
+    }
+
+    public Object left() {
+        return left;
+    }
+
+    // from the root down to the values that differ: empty when they are the roots
+    public List<Segment> path() {
+        return path;
+    }
+
+    // null if equal
+    public DiffSink.Reason reason() {
+        return reason;
+    }
+
+    public Object right() {
+        return right;
+    }
+
+    // the path as verbose() prints it, then the values
+    @Override
+    public String toString() {
+        if (equal()) {
+            return "equal";
+        }
+        final StringBuilder result = new StringBuilder();
+        for (final Segment s : path) {
+            if (s.kind == Segment.Kind.PROPERTY && result.length() > 0) {
+                result.append('.');
+            }
+            result.append(s);
+        }
+        return result.append(": ").append(reason).append(' ').append(left).append(", ").append(right).toString();
+    }
+
+    // a step on the path: into a property, an element of a sequence or an entry of a map
+    public static final class Segment {
+        public enum Kind { PROPERTY, INDEX, KEY }
+
+        private final Kind kind;
+        private final Object value;
+
+        Segment(final Kind kind, final Object value) {
+            this.kind = kind;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Segment that = (Segment) o;
+            return kind == that.kind && Objects.equals(value, that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, value);
+        }
+
+        public Kind kind() {
+            return kind;
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.PROPERTY ? (String) value : "[" + value + "]";
+        }
+
+        // the name of the property, the index of the element as an Integer, or the key
+        public Object value() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+// a listener that keeps count of the calls, the nodes visited and the time spent per type.
+// Safe to share between threads and comparisons; the figures add up until reset.
+@SuppressWarnings("UnstableApiUsage")
+public final class ComparisonStatistics implements ComparisonListener {
+    private final ConcurrentMap<TypeToken<?>, TypeStatistics> byType = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder overrides = new LongAdder();
+    private final LongAdder cycles = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    // per thread and depth: when the node was entered and how long its children took
+    private final ThreadLocal<Timings> timings = ThreadLocal.withInitial(Timings::new);
+
+    public Map<TypeToken<?>, TypeStatistics> byType() {
+        return Collections.unmodifiableMap(byType);
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    @Override
+    public void cycle(final TypeToken<?> tt) {
+        cycles.increment();
+    }
+
+    public long cycles() {
+        return cycles.sum();
+    }
+
+    @Override
+    public void enter(final TypeToken<?> tt, final Object x, final Object y, final int depth) {
+        if (depth == 0) {
+            calls.increment();
+        }
+        nodes.increment();
+        if (depth > maxDepth.get()) {
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+        timings.get().enter(depth);
+    }
+
+    @Override
+    public void exit(final TypeToken<?> tt, final boolean equal, final int depth) {
+        final Timings t = timings.get();
+        final long total = t.exit(depth);
+        final TypeStatistics s = byType.computeIfAbsent(tt, k -> new TypeStatistics());
+        s.visits.increment();
+        s.totalNanos.add(total);
+        s.selfNanos.add(total - t.children[depth]);
+    }
+
+    public int maxDepth() {
+        return maxDepth.get();
+    }
+
+    @Override
+    public void mismatch(final TypeToken<?> tt, final Object x, final Object y) {
+        mismatches.increment();
+    }
+
+    public long mismatches() {
+        return mismatches.sum();
+    }
+
+    public long nodes() {
+        return nodes.sum();
+    }
+
+    public double nodesPerCall() {
+        final long c = calls();
+        return c == 0 ? 0 : (double) nodes() / c;
+    }
+
+    @Override
+    public void override(final TypeToken<?> tt) {
+        overrides.increment();
+    }
+
+    @Override
+    public void override(final TypeToken<?> owner, final String property) {
+        overrides.increment();
+    }
+
+    public long overrides() {
+        return overrides.sum();
+    }
+
+    public void reset() {
+        byType.clear();
+        calls.reset();
+        nodes.reset();
+        mismatches.reset();
+        overrides.reset();
+        cycles.reset();
+        maxDepth.set(0);
+    }
+
+    // one line per type, the most expensive first
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder(format(
+                "calls: %d, nodes: %d (%.1f per call), max depth: %d, mismatches: %d, overrides: %d, cycles: %d%n",
+                calls(), nodes(), nodesPerCall(), maxDepth(), mismatches(), overrides(), cycles()));
+        byType.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<TypeToken<?>, TypeStatistics> e) -> e.getValue().selfNanos())
+                                .reversed())
+                .forEach(e -> result.append(format("%s: %s%n", e.getKey(), e.getValue())));
+        return result.toString();
+    }
+
+    public static final class TypeStatistics {
+        private final LongAdder visits = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder selfNanos = new LongAdder();
+
+        private TypeStatistics() {}
+
+        // the time spent comparing values of this type, not counting their children
+        public long selfNanos() {
+            return selfNanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return format("visits: %d, self: %dns, total: %dns", visits(), selfNanos(), totalNanos());
+        }
+
+        // the time spent comparing values of this type, their children included
+        public long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long visits() {
+            return visits.sum();
+        }
+    }
+
+    private static final class Timings {
+        private long[] started = new long[16];
+        private long[] children = new long[16];
+
+        void enter(final int depth) {
+            if (depth >= started.length) {
+                started = Arrays.copyOf(started, depth * 2);
+                children = Arrays.copyOf(children, depth * 2);
+            }
+            started[depth] = System.nanoTime();
+            children[depth] = 0;
+        }
+
+        // the time since the node at depth was entered, added to its parent's children
+        long exit(final int depth) {
+            final long result = System.nanoTime() - started[depth];
+            if (depth > 0) {
+                children[depth - 1] += result;
+            }
+            return result;
+        }
+    }
+}
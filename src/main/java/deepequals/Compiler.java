@@ -0,0 +1,689 @@
+package deepequals;
+
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiPredicate;
+
+import static deepequals.DeepEquals.compareSets;
+import static deepequals.LenientMatching.HASH_DEPTH;
+import static deepequals.PrimitiveArrays.asList;
+import static deepequals.PrimitiveArrays.mismatch;
+import static java.util.Arrays.stream;
+
+// the "compiled" engine: every type token is turned once into a tree of nodes with the
+// dispatch decision, the getters and the child nodes already resolved, so that comparing
+// two objects is a straight walk over the tree. It must agree with the Interpreter.
+// Objects whose properties are all compared as values go through a tree of method
+// handles instead, see FlatEquality, held as a constant by a class defined for each type
+// out of the ConstantEquality template: the JIT then inlines the whole tree, which needs
+// no class file writer and works on Java 8 too, through ClassLoader.defineClass.
+@SuppressWarnings({"rawtypes", "unchecked", "UnstableApiUsage"})
+final class Compiler implements DeepEqualizer {
+    private static final Compiler DEFAULT = new Compiler(Options.DEFAULT, Overrides.NONE, false);
+
+    private final DispatchTable table;
+    private final boolean orderLenient;
+    private final DeepHasher hasher;
+    private final DeepHasher bucketHasher;
+    private final Differ differ;
+    private final ConcurrentMap<TypeToken, Node> nodes = new ConcurrentHashMap<>();
+    // the same nodes, by class: TypeToken.of allocates a token on every comparison
+    private final ConcurrentMap<Class, Node> classes = new ConcurrentHashMap<>();
+
+    private Compiler(final Options options,
+                     final Overrides overrides,
+                     final boolean orderLenient) {
+        this.table = new DispatchTable(options, overrides, orderLenient);
+        this.orderLenient = orderLenient;
+        this.hasher = DeepHasher.full(table);
+        this.bucketHasher = DeepHasher.bounded(table, HASH_DEPTH);
+        this.differ = new Differ(table, false);
+    }
+
+    static Compiler of(final Options options,
+                       final Overrides overrides,
+                       final boolean orderLenient) {
+        return options == Options.DEFAULT && overrides == Overrides.NONE && !orderLenient
+                ? DEFAULT
+                : new Compiler(options, overrides, orderLenient);
+    }
+
+    @Override
+    public <T> ComparisonResult check(final TypeToken<T> tt, final T x, final T y) {
+        // most objects checked are equal: compared as by deepEquals first, through the
+        // handle of flat objects, and again to record where only if they are not
+        if (deepEquals(tt, x, y)) {
+            return ComparisonResult.EQUAL;
+        }
+        final FailurePath path = new FailurePath();
+        return node(tt).test(new CycleDetector(), path, x, y) ? ComparisonResult.EQUAL : path.result();
+    }
+
+    @Override
+    public <T> Comparison<T> compare(final TypeToken<T> tt, final T x, final T y) {
+        return differ.compare(tt, x, y);
+    }
+
+    @Override
+    public <T> boolean deepEquals(final Class<T> c, final T x, final T y) {
+        Node node = classes.get(c);
+        if (node == null) {
+            node = node(TypeToken.of(c));
+            classes.putIfAbsent(c, node);
+        }
+        return deepEquals(node, x, y);
+    }
+
+    @Override
+    public <T> boolean deepEquals(final TypeToken<T> tt, final T x, final T y) {
+        return deepEquals(node(tt), x, y);
+    }
+
+    @Override
+    public <T> boolean deepEquals(final TypeToken<T> tt,
+                                  final Spliterator<T> x,
+                                  final Spliterator<T> y,
+                                  final int maxPending) {
+        final Node element = node(tt);
+        final CycleDetector cycles = new CycleDetector();
+        return orderLenient
+                ? StreamMatching.lenient(x,
+                                         y,
+                                         maxPending,
+                                         e -> bucketHasher.hash(tt, e),
+                                         (e1, e2) -> element.test(cycles, null, e1, e2))
+                : StreamMatching.strict(x,
+                                        y,
+                                        StreamMatching.CHUNK,
+                                        (xs, ys, size, offset) -> {
+                                            for (int i = 0; i < size; i++) {
+                                                if (!element.test(cycles, null, xs[i], ys[i])) {
+                                                    return false;
+                                                }
+                                            }
+                                            return true;
+                                        },
+                                        end -> {});
+    }
+
+    @Override
+    public <T> int deepHashCode(final TypeToken<T> tt, final T x) {
+        return hasher.hash(tt, x);
+    }
+
+    @Override
+    public <T> int diff(final TypeToken<T> tt,
+                        final T x,
+                        final T y,
+                        final DiffSink sink,
+                        final int maxDifferences) {
+        return differ.diff(tt, x, y, sink, maxDifferences);
+    }
+
+    private Node compile(final TypeToken tt) {
+        final Dispatch d = table.get(tt);
+        switch (d.kind) {
+            case OVERRIDE:
+                return new OverrideNode(d.override.predicate());
+            case EQUALS:
+                return EqualsNode.INSTANCE;
+            case ARRAY:
+                return d.bulk ? BulkArrayNode.INSTANCE : new ArrayNode(sequence(d.element));
+            case OPTIONAL:
+                return new OptionalNode(node(d.element));
+            case SET:
+                return SetNode.INSTANCE;
+            case MAP:
+                return new MapNode(node(d.element));
+            case LIST:
+                return new ListNode(sequence(d.element));
+            case COLLECTION:
+                return new CollectionNode(sequence(d.element));
+            case ITERABLE:
+                return new IterableNode(sequence(d.element));
+            default:
+                return new DeepNode(d);
+        }
+    }
+
+    private static boolean deepEquals(final Node node, final Object x, final Object y) {
+        // nothing to detect, and so nothing to allocate, below a flat object
+        return node.test(node.walksGetters() ? new CycleDetector() : null, null, x, y);
+    }
+
+    private Node node(final TypeToken tt) {
+        final Node result = nodes.get(tt);
+        if (result != null) {
+            return result;
+        }
+        final Node node = compile(tt);
+        final Node previous = nodes.putIfAbsent(tt, node);
+        return previous != null ? previous : node;
+    }
+
+    private Sequence sequence(final TypeToken componentType) {
+        final Node element = node(componentType);
+        return orderLenient
+                ? new LenientSequence(componentType, element)
+                : new StrictSequence(element);
+    }
+
+    private abstract static class Node {
+        final boolean test(final CycleDetector cycles,
+                           final FailurePath path,
+                           final Object x,
+                           final Object y) {
+            if (x == y) {
+                return true;
+            }
+            if (x != null && y != null && compare(cycles, path, x, y)) {
+                return true;
+            }
+            if (path != null) {
+                path.values(x, y, DiffSink.Reason.NOT_EQUAL);
+            }
+            return false;
+        }
+
+        abstract boolean compare(CycleDetector cycles, FailurePath path, Object x, Object y);
+
+        // whether comparing two values may go through a getter, and thus close a cycle
+        boolean walksGetters() {
+            return true;
+        }
+    }
+
+    private abstract static class Sequence {
+        final Node element;
+
+        Sequence(final Node element) {
+            this.element = element;
+        }
+
+        abstract boolean compare(CycleDetector cycles, FailurePath path, List x, List y);
+
+        abstract boolean compare(CycleDetector cycles, FailurePath path, Iterable x, Iterable y);
+
+        abstract boolean compare(CycleDetector cycles, FailurePath path, Object[] x, Object[] y);
+    }
+
+    private static final class ArrayNode extends Node {
+        private final Sequence sequence;
+
+        ArrayNode(final Sequence sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            return x instanceof Object[]
+                    ? sequence.compare(cycles, path, (Object[]) x, (Object[]) y)
+                    : sequence.compare(cycles, path, asList(x), asList(y));
+        }
+    }
+
+    private static final class BulkArrayNode extends Node {
+        static final BulkArrayNode INSTANCE = new BulkArrayNode();
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            final int idx = mismatch(x, y);
+            if (idx >= 0 && path != null) {
+                path.element(idx, asList(x), asList(y));
+            }
+            return idx < 0;
+        }
+
+        @Override
+        boolean walksGetters() {
+            return false;
+        }
+    }
+
+    private static final class CollectionNode extends Node {
+        private final Sequence sequence;
+
+        CollectionNode(final Sequence sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            // the index of the mismatch is only known by walking up to it
+            return (path != null || ((Collection<?>) x).size() == ((Collection<?>) y).size())
+                    && sequence.compare(cycles, path, (Iterable) x, (Iterable) y);
+        }
+    }
+
+    private final class DeepNode extends Node {
+        private final Dispatch dispatch;
+        private volatile Property[] properties;
+        // set along with the properties: their equality in a single handle when they are
+        // all compared as values, see FlatEquality, and whether any of them is not a leaf
+        private BiPredicate<Object, Object> flat;
+        private boolean walksGetters;
+
+        DeepNode(final Dispatch dispatch) {
+            this.dispatch = dispatch;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            final Property[] properties = properties();
+            // the handle does not tell where the objects differ
+            if (flat != null && path == null) {
+                return flat.test(x, y);
+            }
+            for (final Property p : properties) {
+                // primitives are not boxed, and cannot close a cycle
+                if (p.primitiveEquality != null) {
+                    if (!p.primitiveEquality.test(x, y)) {
+                        if (path != null) {
+                            failedAt(path, p.getter, p.getter.get(x), p.getter.get(y));
+                        }
+                        return false;
+                    }
+                    continue;
+                }
+                if (p.leaf) {
+                    final Object xvalue = p.getter.get(x);
+                    final Object yvalue = p.getter.get(y);
+                    if (!p.test(cycles, path, xvalue, yvalue)) {
+                        if (path != null) {
+                            failedAt(path, p.getter, xvalue, yvalue);
+                        }
+                        return false;
+                    }
+                    continue;
+                }
+                cycles.add(p.getter);
+                final Cycle c = cycles.cycle();
+                if (c != null) {
+                    throw new CycleException(c.toString());
+                }
+                final Object xvalue = p.getter.get(x);
+                final Object yvalue = p.getter.get(y);
+                final boolean equals = p.test(cycles, path, xvalue, yvalue);
+                cycles.remove();
+                if (!equals) {
+                    if (path != null) {
+                        failedAt(path, p.getter, xvalue, yvalue);
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        boolean walksGetters() {
+            properties();
+            return walksGetters;
+        }
+
+        // the values of the property differ, or some below them: the lower ones are kept
+        private void failedAt(final FailurePath path,
+                              final Getter getter,
+                              final Object x,
+                              final Object y) {
+            path.values(x, y, DiffSink.Reason.NOT_EQUAL);
+            path.getter(getter);
+        }
+
+        // resolved on first use: building a node must not reflect over types whose
+        // values may never be visited. Racy but idempotent; the volatile field
+        // publishes the array, and the fields written before it, safely to other
+        // threads.
+        private Property[] properties() {
+            Property[] result = properties;
+            if (result == null) {
+                final Dispatch.Property[] resolved = dispatch.properties();
+                result = new Property[resolved.length];
+                for (int i = 0; i < result.length; i++) {
+                    final Dispatch.Property p = resolved[i];
+                    result[i] = p.override != null
+                            ? new Property(p.getter, p.override.predicate(), null, null)
+                            : new Property(p.getter, null, node(p.getter.type()), p.primitiveEquality);
+                }
+                flat = FlatEquality.of(resolved);
+                walksGetters = stream(result).anyMatch(p -> !p.leaf);
+                properties = result;
+            }
+            return result;
+        }
+    }
+
+    private static final class EqualsNode extends Node {
+        static final EqualsNode INSTANCE = new EqualsNode();
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            return x.equals(y);
+        }
+
+        @Override
+        boolean walksGetters() {
+            return false;
+        }
+    }
+
+    private static final class IterableNode extends Node {
+        private final Sequence sequence;
+
+        IterableNode(final Sequence sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            return sequence.compare(cycles, path, (Iterable) x, (Iterable) y);
+        }
+    }
+
+    private final class LenientSequence extends Sequence {
+        private final TypeToken componentType;
+
+        LenientSequence(final TypeToken componentType, final Node element) {
+            super(element);
+            this.componentType = componentType;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Iterable x,
+                        final Iterable y) {
+            return compare(cycles, path, Lists.newArrayList(x), Lists.newArrayList(y));
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object[] x,
+                        final Object[] y) {
+            return compare(cycles, path, Arrays.asList(x), Arrays.asList(y));
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final List x,
+                        final List y) {
+            return LenientMatching.matches(
+                    x,
+                    y,
+                    e -> bucketHasher.hash(componentType, e),
+                    // a failed attempt to match is not a mismatch of the sequences
+                    (e1, e2) -> element.test(cycles, null, e1, e2));
+        }
+    }
+
+    private static final class ListNode extends Node {
+        private final Sequence sequence;
+
+        ListNode(final Sequence sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            return sequence.compare(cycles, path, (List) x, (List) y);
+        }
+    }
+
+    private static final class MapNode extends Node {
+        private final Node value;
+
+        MapNode(final Node value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            final Map<?, ?> mapx = (Map<?, ?>) x;
+            final Map<?, ?> mapy = (Map<?, ?>) y;
+            // the key of the mismatch is only known by looking for it
+            if (path == null && mapx.size() != mapy.size()) {
+                return false;
+            }
+            for (final Map.Entry<?, ?> e : mapx.entrySet()) {
+                if (!mapy.containsKey(e.getKey())) {
+                    if (path != null) {
+                        path.key(e.getKey());
+                        path.values(e.getValue(), null, DiffSink.Reason.ONLY_LEFT);
+                    }
+                    return false;
+                }
+                if (!value.test(cycles, path, e.getValue(), mapy.get(e.getKey()))) {
+                    if (path != null) {
+                        path.key(e.getKey());
+                    }
+                    return false;
+                }
+            }
+            if (mapx.size() != mapy.size()) {
+                // all the keys of x are in y: y has more
+                for (final Map.Entry<?, ?> e : mapy.entrySet()) {
+                    if (!mapx.containsKey(e.getKey())) {
+                        path.key(e.getKey());
+                        path.values(null, e.getValue(), DiffSink.Reason.ONLY_RIGHT);
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class OptionalNode extends Node {
+        private final Node value;
+
+        OptionalNode(final Node value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            final Optional<?> optx = (Optional<?>) x;
+            final Optional<?> opty = (Optional<?>) y;
+            return optx.isPresent()
+                    ? opty.isPresent() && value.test(cycles, path, optx.get(), opty.get())
+                    : !opty.isPresent();
+        }
+    }
+
+    private static final class OverrideNode extends Node {
+        private final BiPredicate predicate;
+
+        OverrideNode(final BiPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            return predicate.test(x, y);
+        }
+
+        @Override
+        boolean walksGetters() {
+            return false;
+        }
+    }
+
+    private static final class Property {
+        final Getter getter;
+        final BiPredicate override;
+        final Node node;
+        final BiPredicate<Object, Object> primitiveEquality;
+        // the values compared go through no getter: the getter of the property need not
+        // be tracked for cycles. Nested objects are not, even flat ones, as telling would
+        // resolve their properties, and so those of recursive types forever
+        final boolean leaf;
+
+        Property(final Getter getter,
+                 final BiPredicate override,
+                 final Node node,
+                 final BiPredicate<Object, Object> primitiveEquality) {
+            this.getter = getter;
+            this.override = override;
+            this.node = node;
+            this.primitiveEquality = primitiveEquality;
+            this.leaf = override != null
+                    || primitiveEquality != null
+                    || !(node instanceof DeepNode) && !node.walksGetters();
+        }
+
+        boolean test(final CycleDetector cycles,
+                     final FailurePath path,
+                     final Object x,
+                     final Object y) {
+            return override != null ? override.test(x, y) : node.test(cycles, path, x, y);
+        }
+    }
+
+    private static final class SetNode extends Node {
+        static final SetNode INSTANCE = new SetNode();
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object x,
+                        final Object y) {
+            return compareSets(x, y);
+        }
+
+        @Override
+        boolean walksGetters() {
+            return false;
+        }
+    }
+
+    private static final class StrictSequence extends Sequence {
+        StrictSequence(final Node element) {
+            super(element);
+        }
+
+        // walks both sides at once, without copying them, up to the first mismatch.
+        // Lists with random access are walked by index, which takes no iterators.
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Iterable x,
+                        final Iterable y) {
+            if (x instanceof RandomAccess && x instanceof List
+                    && y instanceof RandomAccess && y instanceof List) {
+                return compare(cycles, path, (List) x, (List) y);
+            }
+            final Iterator itx = x.iterator();
+            final Iterator ity = y.iterator();
+            int idx = 0;
+            while (itx.hasNext() && ity.hasNext()) {
+                if (!element.test(cycles, path, itx.next(), ity.next())) {
+                    if (path != null) {
+                        path.index(idx);
+                    }
+                    return false;
+                }
+                idx++;
+            }
+            if (itx.hasNext() || ity.hasNext()) {
+                if (path != null) {
+                    path.index(idx);
+                    if (itx.hasNext()) {
+                        path.values(itx.next(), null, DiffSink.Reason.ONLY_LEFT);
+                    } else {
+                        path.values(null, ity.next(), DiffSink.Reason.ONLY_RIGHT);
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final List x,
+                        final List y) {
+            // the index of the mismatch is only known by walking up to it
+            if (path == null && x.size() != y.size()) {
+                return false;
+            }
+            final int size = Math.min(x.size(), y.size());
+            for (int i = 0; i < size; i++) {
+                if (!element.test(cycles, path, x.get(i), y.get(i))) {
+                    if (path != null) {
+                        path.index(i);
+                    }
+                    return false;
+                }
+            }
+            if (x.size() != y.size()) {
+                path.element(size, x, y);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        boolean compare(final CycleDetector cycles,
+                        final FailurePath path,
+                        final Object[] x,
+                        final Object[] y) {
+            if (x.length != y.length) {
+                // as lists, which tell where
+                return compare(cycles, path, Arrays.asList(x), Arrays.asList(y));
+            }
+            for (int i = 0; i < x.length; i++) {
+                if (!element.test(cycles, path, x[i], y[i])) {
+                    if (path != null) {
+                        path.index(i);
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package deepequals;
+
+import java.lang.invoke.MethodHandle;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Throwables.propagate;
+
+// the template of the classes FlatEquality defines, each in a class loader of its own
+// that hands it the handle to hold: a constant of the class, which the JIT inlines into
+// test as it would the code of a hand-written equals. Never loaded as is. Public, as
+// every copy is in a package of its own loader.
+public final class ConstantEquality implements BiPredicate<Object, Object> {
+    @SuppressWarnings("unchecked")
+    private static final MethodHandle EQUALITY =
+            ((Supplier<MethodHandle>) ConstantEquality.class.getClassLoader()).get();
+
+    @Override
+    public boolean test(final Object x, final Object y) {
+        try {
+            return (boolean) EQUALITY.invokeExact(x, y);
+        } catch (final Throwable e) {
+            throw propagate(e);
+        }
+    }
+}
@@ -1,37 +1,47 @@
 package deepequals;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.ImmutableList;
 
-import java.util.Optional;
+import java.util.Arrays;
 
-import static com.google.common.collect.ImmutableList.builder;
+import static java.util.Arrays.copyOf;
 
+// the getters on the way from the root to the current property. The stack is short,
+// bounded by the number of distinct getters, so a linear scan beats hashing and
+// neither adding nor removing allocates once the array has grown.
 final class CycleDetector {
-    private final BiMap<Integer, Getter> sequence = HashBiMap.create();
+    private Getter[] sequence = new Getter[16];
+    private int size = 0;
     private Cycle cycle = null;
 
     void add(final Getter getter) {
-        final Integer idx = sequence.inverse().get(getter);
-        if (idx != null) {
-            cycle = cycle(idx);
-            return;
+        for (int i = 0; i < size; i++) {
+            final Getter g = sequence[i];
+            if (g == getter || g.equals(getter)) {
+                cycle = new Cycle(ImmutableList.copyOf(Arrays.asList(sequence).subList(0, size)), i);
+                return;
+            }
         }
-        sequence.put(sequence.size(), getter);
+        if (size == sequence.length) {
+            sequence = copyOf(sequence, size * 2);
+        }
+        sequence[size++] = getter;
     }
 
-    Optional<Cycle> getCycle() {
-        return Optional.ofNullable(cycle);
+    CycleDetector copy() {
+        final CycleDetector result = new CycleDetector();
+        result.sequence = copyOf(sequence, sequence.length);
+        result.size = size;
+        result.cycle = cycle;
+        return result;
     }
 
-    void remove() {
-        sequence.remove(sequence.size() - 1);
+    // null unless a getter was added twice
+    Cycle cycle() {
+        return cycle;
     }
 
-    private Cycle cycle(final Integer idx) {
-        final Builder<Getter> b = builder();
-        sequence.keySet().stream().sorted().forEach(i -> b.add(sequence.get(i)));
-        return new Cycle(b.build(), idx);
+    void remove() {
+        sequence[--size] = null;
     }
 }
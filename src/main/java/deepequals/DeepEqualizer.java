@@ -0,0 +1,79 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+public interface DeepEqualizer {
+    default <T> ComparisonResult check(final Class<T> c, final T x, final T y) {
+        return check(TypeToken.of(c), x, y);
+    }
+
+    // as deepEquals, but when x and y are not equal it tells where: the path to the
+    // difference the engine stopped at, the values there and why they differ, recorded as
+    // the comparison unwinds. Nothing is printed, even with verbose()
+    <T> ComparisonResult check(TypeToken<T> tt, T x, T y);
+
+    default <T> Comparison<T> compare(final Class<T> c, final T x, final T y) {
+        return compare(TypeToken.of(c), x, y);
+    }
+
+    // every difference between x and y, as diff finds them, kept so that the comparison
+    // can be brought up to date by comparing again only the subtrees that changed
+    <T> Comparison<T> compare(TypeToken<T> tt, T x, T y);
+
+    default <T> boolean deepEquals(final Class<T> c, final T x, final T y) {
+        return deepEquals(TypeToken.of(c), x, y);
+    }
+
+    <T> boolean deepEquals(TypeToken<T> tt, T x, T y);
+
+    // consumes both streams: see below
+    default <T> boolean deepEquals(final TypeToken<T> tt, final Stream<T> x, final Stream<T> y) {
+        return deepEquals(tt, x.spliterator(), y.spliterator());
+    }
+
+    default <T> boolean deepEquals(final TypeToken<T> tt, final Spliterator<T> x, final Spliterator<T> y) {
+        return deepEquals(tt, x, y, StreamMatching.MAX_PENDING);
+    }
+
+    // compares the elements of both sides as a sequence of tt, reading them as it goes
+    // instead of collecting them first. In strict order they are read a chunk at a time
+    // and compared pair by pair, in parallel if both sides are SIZED. In lenient order at
+    // most maxPending elements of either side may wait for a match in the other one:
+    // beyond that it throws IllegalStateException. It stops reading at the first mismatch
+    <T> boolean deepEquals(TypeToken<T> tt, Spliterator<T> x, Spliterator<T> y, int maxPending);
+
+    default <T> int deepHashCode(final Class<T> c, final T x) {
+        return deepHashCode(TypeToken.of(c), x);
+    }
+
+    // consistent with deepEquals: deep equal objects have the same hash code
+    <T> int deepHashCode(TypeToken<T> tt, T x);
+
+    default <T> int diff(final Class<T> c, final T x, final T y, final DiffSink sink) {
+        return diff(TypeToken.of(c), x, y, sink);
+    }
+
+    default <T> int diff(final TypeToken<T> tt, final T x, final T y, final DiffSink sink) {
+        return diff(tt, x, y, sink, Integer.MAX_VALUE);
+    }
+
+    // hands every difference between x and y to the sink, up to maxDifferences, and
+    // returns how many there were: 0 when deepEquals holds. Sequential, and it does not
+    // notify the listener nor print the path of verbose()
+    <T> int diff(TypeToken<T> tt, T x, T y, DiffSink sink, int maxDifferences);
+
+    @SuppressWarnings({"unused", "unchecked"})
+    default boolean deepEqualsTypeUnsafe(
+            final Object classOrTypeToken, final Object x, final Object y) {
+        return deepEquals(
+                classOrTypeToken instanceof Class
+                        ? TypeToken.of((Class) classOrTypeToken)
+                        : (TypeToken) classOrTypeToken,
+                x,
+                y);
+    }
+}
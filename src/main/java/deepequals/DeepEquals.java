@@ -1,8 +1,5 @@
 package deepequals;
 
-import com.google.common.base.Joiner;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
 import com.google.common.reflect.TypeToken;
 import deepequals.comparator.Comparator;
 import deepequals.comparator.FieldComparator;
@@ -11,47 +8,75 @@ import deepequals.comparator.TypeTokenMatcherComparator;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.Stack;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiPredicate;
-import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
-import static deepequals.Getters.getters;
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
-import static java.util.stream.IntStream.range;
 
 @SuppressWarnings("rawtypes")
 public final class DeepEquals {
+    private static final DeepEqualizer DEFAULT = withOptions().build();
+
     @SuppressWarnings("UnstableApiUsage")
-    public interface WithOptions {
-        <T> boolean deepEquals(Class<T> c, T x, T y);
+    public interface WithOptions extends DeepEqualizer {
+        // checks first the properties that most often tell the objects apart, as learned
+        // from the comparisons made so far and kept in the given ordering, which may be
+        // shared by several equalizers and stored for later. Replaces the ordering set
+        // before, if any
+        WithOptions adaptiveOrdering(AdaptiveOrdering ordering);
 
-        <T> boolean deepEquals(TypeToken<T> tt, T x, T y);
+        // freezes the current options. Options added afterwards do not affect
+        // the returned instance, which is immutable and safe to share between threads
+        DeepEqualizer build();
 
-        @SuppressWarnings("unused")
-        boolean deepEqualsTypeUnsafe(Object classOrTypeToken, Object x, Object y);
+        WithOptions compiled();
 
         @SuppressWarnings("unchecked")
         WithOptions ignore(BiPredicate<TypeToken, Method> first,
                            BiPredicate<TypeToken, Method>... rest);
 
+        // notifies the listener of the progress of every comparison, e.g. a
+        // ComparisonStatistics. Replaces the listener set before, if any
+        WithOptions listener(ComparisonListener listener);
+
+        // remembers the pairs of objects, by identity, proven equal within one comparison
+        // so that objects shared by many parents are compared once. Cycles are detected by
+        // identity too: cyclic object graphs compare without a CycleException
+        WithOptions memoizeByIdentity();
+
         WithOptions orderLenient(/* add support to limit order leniency to certain types/method */);
 
         WithOptions override(Comparator... comparators);
 
+        // compares sequences, maps and objects with at least 8192 elements, entries or
+        // properties in parallel in the given pool
+        WithOptions parallel(ForkJoinPool pool);
+
+        // same as above with a threshold other than 8192. The outcome, and the path
+        // reported by verbose(), are the same as those of the sequential comparison
+        WithOptions parallel(ForkJoinPool pool, int threshold);
+
+        // compares float and double values, boxed or not, and arrays of them within the
+        // tolerance. Comparators of these types take precedence. Replaces the tolerance set
+        // before, if any
+        WithOptions tolerance(Tolerance tolerance);
+
         WithOptions typeLenient();
 
+        // the types compared as a whole, with equals or compareTo, instead of property by
+        // property. Replaces the registry set before, ValueTypes.defaults() to begin with
+        WithOptions valueTypes(ValueTypes valueTypes);
+
         WithOptions verbose();
     }
 
@@ -108,48 +133,123 @@ public final class DeepEquals {
 
     @SuppressWarnings("UnstableApiUsage")
     private static class Stateful implements WithOptions {
-        private final Map<TypeToken, BiPredicate> typeTokenComparators = new HashMap<>();
-        private final Map<Field, BiPredicate> fieldComparators = new HashMap<>();
-        private final Stack<String> objectPath = new Stack<>();
+        private final Map<TypeToken, Comparator> typeTokenComparators = new HashMap<>();
+        private final Map<Field, Comparator> fieldComparators = new HashMap<>();
         private final Set<BiPredicate<TypeToken, Method>> ignoredMethods = new HashSet<>();
         private final List<TypeTokenMatcherComparator> typeTokenMatcherComparators = new ArrayList<>();
-        private CycleDetector cycleDetector;
         private boolean verbose = false;
         private boolean orderLenient = false;
         private boolean typeLenient = false;
+        private boolean memoizeByIdentity = false;
+        private Parallelism parallelism = null;
+        private ComparisonListener listener = null;
+        private AdaptiveOrdering ordering = null;
+        private Tolerance tolerance = null;
+        private ValueTypes valueTypes = ValueTypes.defaults();
+        private boolean compiled = false;
         private Options options;
+        private Overrides overrides;
+        private DeepEqualizer equalizer;
+
+        @Override
+        public WithOptions adaptiveOrdering(final AdaptiveOrdering ordering) {
+            this.ordering = ordering;
+            options = null;
+            equalizer = null;
+            return this;
+        }
+
+        @Override
+        public DeepEqualizer build() {
+            if (equalizer == null) {
+                // the compiled engine neither tracks the object path, memoizes, forks,
+                // notifies nor reorders getters
+                final boolean interpreted = verbose
+                        || memoizeByIdentity
+                        || parallelism != null
+                        || listener != null
+                        || ordering != null;
+                equalizer = compiled && !interpreted
+                        ? Compiler.of(options(), overrides(), orderLenient)
+                        : new Interpreter(options(),
+                                          overrides(),
+                                          orderLenient,
+                                          verbose,
+                                          memoizeByIdentity,
+                                          parallelism,
+                                          listener);
+            }
+            return equalizer;
+        }
+
+        @Override
+        public <T> ComparisonResult check(final Class<T> c, final T x, final T y) {
+            return build().check(c, x, y);
+        }
+
+        @Override
+        public <T> ComparisonResult check(final TypeToken<T> tt, final T x, final T y) {
+            return build().check(tt, x, y);
+        }
+
+        @Override
+        public <T> Comparison<T> compare(final Class<T> c, final T x, final T y) {
+            return build().compare(c, x, y);
+        }
+
+        @Override
+        public <T> Comparison<T> compare(final TypeToken<T> tt, final T x, final T y) {
+            return build().compare(tt, x, y);
+        }
+
+        @Override
+        public WithOptions compiled() {
+            compiled = true;
+            equalizer = null;
+            return this;
+        }
 
         @Override
         public <T> boolean deepEquals(final Class<T> c, final T x, final T y) {
-            return deepEquals(TypeToken.of(c), x, y);
+            return build().deepEquals(c, x, y);
         }
 
         @Override
         public <T> boolean deepEquals(final TypeToken<T> tt, final T x, final T y) {
-            options = new Options(typeLenient, ignoredMethods);
-
-            boolean result = false;
-            cycleDetector = new CycleDetector();
-            try {
-                result = deepEqualsImpl(tt, x, y);
-            } finally {
-                if (verbose && !result) {
-                    printPath();
-                }
-            }
-            return result;
+            return build().deepEquals(tt, x, y);
+        }
+
+        @Override
+        public <T> boolean deepEquals(final TypeToken<T> tt,
+                                      final Spliterator<T> x,
+                                      final Spliterator<T> y,
+                                      final int maxPending) {
+            return build().deepEquals(tt, x, y, maxPending);
         }
 
         @Override
         public boolean deepEqualsTypeUnsafe(
                 final Object classOrTypeToken, final Object x, final Object y) {
-            //noinspection unchecked
-            return deepEquals(
-                    classOrTypeToken instanceof Class
-                            ? TypeToken.of((Class) classOrTypeToken)
-                            : (TypeToken) classOrTypeToken,
-                    x,
-                    y);
+            return build().deepEqualsTypeUnsafe(classOrTypeToken, x, y);
+        }
+
+        @Override
+        public <T> int deepHashCode(final Class<T> c, final T x) {
+            return build().deepHashCode(c, x);
+        }
+
+
+        @Override
+        public <T> int deepHashCode(final TypeToken<T> tt, final T x) {
+            return build().deepHashCode(tt, x);
+        }
+        @Override
+        public <T> int diff(final TypeToken<T> tt,
+                            final T x,
+                            final T y,
+                            final DiffSink sink,
+                            final int maxDifferences) {
+            return build().diff(tt, x, y, sink, maxDifferences);
         }
 
         @SafeVarargs
@@ -158,12 +258,29 @@ public final class DeepEquals {
                                         final BiPredicate<TypeToken, Method>... rest) {
             ignoredMethods.add(first);
             ignoredMethods.addAll(asList(rest));
+            options = null;
+            equalizer = null;
+            return this;
+        }
+
+        @Override
+        public WithOptions listener(final ComparisonListener listener) {
+            this.listener = listener;
+            equalizer = null;
+            return this;
+        }
+
+        @Override
+        public WithOptions memoizeByIdentity() {
+            memoizeByIdentity = true;
+            equalizer = null;
             return this;
         }
 
         @Override
         public WithOptions orderLenient() {
             orderLenient = true;
+            equalizer = null;
             return this;
         }
 
@@ -182,212 +299,53 @@ public final class DeepEquals {
         }
 
         @Override
-        public WithOptions typeLenient() {
-            typeLenient = true;
+        public WithOptions parallel(final ForkJoinPool pool) {
+            return parallel(pool, Parallelism.DEFAULT_THRESHOLD);
+        }
+
+        @Override
+        public WithOptions parallel(final ForkJoinPool pool, final int threshold) {
+            parallelism = new Parallelism(pool, threshold);
+            equalizer = null;
             return this;
         }
 
         @Override
-        public WithOptions verbose() {
-            verbose = true;
+        public WithOptions tolerance(final Tolerance tolerance) {
+            this.tolerance = tolerance;
+            overrides = null;
+            equalizer = null;
             return this;
         }
 
-        private boolean compareArrays(final TypeToken tt, final Object x, final Object y) {
-            return compareSequencesOf(
-                    tt.getComponentType(),
-                    asList((Object[]) x),
-                    asList((Object[]) y));
+        @Override
+        public WithOptions typeLenient() {
+            typeLenient = true;
+            options = null;
+            equalizer = null;
+            return this;
         }
 
-        private boolean compareCollections(final TypeToken tt, final Object x, final Object y) {
-            return compareSequencesOf(
-                    getTypeArgToken(tt, 0),
-                    asList(((Collection<?>) x).toArray(new Object[]{})),
-                    asList(((Collection<?>) y).toArray(new Object[]{})));
+        @Override
+        public WithOptions valueTypes(final ValueTypes valueTypes) {
+            this.valueTypes = valueTypes;
+            overrides = null;
+            equalizer = null;
+            return this;
         }
 
-        @SuppressWarnings("unchecked")
-        private boolean compareDeep(final TypeToken tt, final Object x, final Object y) {
-            final Set<Getter> getters = getters(tt, options);
-
-            return getters.stream()
-                    .allMatch(getter -> {
-                        cycleDetector.add(getter);
-                        cycleDetector.getCycle().ifPresent(c -> {
-                            throw new CycleException(c.toString());
-                        });
-
-                        final String getterName = getter.name();
-                        pushNode(getterName);
-                        final Object xfield = getter.get(x);
-                        final Object yfield = getter.get(y);
-                        final Optional<BiPredicate> override = override(tt,
-                                                                        getterName);
-                        final boolean equals = override.isPresent()
-                                ? override.get().test(xfield, yfield)
-                                : deepEqualsImpl(getter.type(), xfield, yfield);
-                        if (equals) {
-                            popNode();
-                        }
-                        cycleDetector.remove();
-                        return equals;
-                    });
-        }
-
-        private boolean compareIterables(final TypeToken tt, final Object x, final Object y) {
-            return compareSequencesOf(
-                    getTypeArgToken(tt, 0),
-                    Lists.newArrayList((Iterable<?>) x),
-                    Lists.newArrayList((Iterable<?>) y));
-        }
-
-        private boolean compareLists(final TypeToken tt, final Object x, final Object y) {
-            return compareSequencesOf(getTypeArgToken(tt, 0),
-                                      (List<?>) x,
-                                      (List<?>) y);
-        }
-
-        private boolean compareMaps(final TypeToken tt, final Object x, final Object y) {
-            final Map<?, ?> mapx = (Map<?, ?>) x;
-            final Map<?, ?> mapy = (Map<?, ?>) y;
-            final TypeToken<?> valueTT = getTypeArgToken(tt, 1);
-            return mapx.size() == mapy.size()
-                    && mapx.keySet().stream().allMatch(k ->
-                                                               mapy.containsKey(
-                                                                       k)
-                                                                       && deepEqualsImpl(
-                                                                       valueTT,
-                                                                       mapx.get(
-                                                                               k),
-                                                                       mapy.get(
-                                                                               k)));
-        }
-
-        private boolean compareOptionals(final TypeToken tt, final Object x, final Object y) {
-            final Optional<?> optx = (Optional<?>) x;
-            final Optional<?> opty = (Optional<?>) y;
-
-            return (!optx.isPresent() && !opty.isPresent())
-                    || (optx.isPresent() && opty.isPresent()
-                    && deepEqualsImpl(
-                    getTypeArgToken(tt, 0),
-                    optx.get(), opty.get()));
-        }
-
-        private boolean compareSequencesOf(
-                final TypeToken componentType, final List x, final List y) {
-            return orderLenient
-                    ? compareSequencesOfLenient(componentType, x, y)
-                    : compareSequencesOfStrict(componentType, x, y);
-        }
-
-        private boolean compareSequencesOfLenient(
-                final TypeToken componentType, final List x, final List y) {
-            final int xSize = x.size();
-            final int ySize = y.size();
-            if (xSize != ySize) {
-                return false;
-            }
-            final Set<Integer> yIndices = new HashSet<>();
-            return x.stream()
-                    .allMatch(e -> {
-                        return range(0, ySize)
-                                .filter(idx -> !yIndices.contains(idx))
-                                .filter(yidx -> {
-                                    if (deepEqualsImpl(componentType,
-                                                       e,
-                                                       y.get(yidx))) {
-                                        yIndices.add(yidx);
-                                        return true;
-                                    }
-                                    return false;
-                                })
-                                .findAny()
-                                .isPresent();
-                    });
-        }
-
-        private boolean compareSequencesOfStrict(final TypeToken componentType,
-                                                 final List x, final List y) {
-            final int xSize = x.size();
-            final int ySize = y.size();
-            if (!range(0, xSize)
-                    .allMatch(idx -> {
-                        pushIndexedNode(idx);
-                        final boolean equals = idx < xSize && idx < ySize
-                                && deepEqualsImpl(componentType,
-                                                  x.get(idx),
-                                                  y.get(idx));
-                        if (equals) {
-                            popIndexedNode();
-                        }
-                        return equals;
-                    })) {
-                return false;
-            }
-            if (xSize != ySize) {
-                pushIndexedNode(xSize);
-                return false;
-            }
-            return true;
+        @Override
+        public WithOptions verbose() {
+            verbose = true;
+            equalizer = null;
+            return this;
         }
 
-        @SuppressWarnings("unchecked")
-        private boolean deepEqualsImpl(final TypeToken tt,
-                                       final Object x,
-                                       final Object y) {
-            if ((x == null && y != null) || (x != null && y == null)) {
-                return false;
-            }
-            if (x == y) {
-                return true;
+        private Options options() {
+            if (options == null) {
+                options = Options.of(typeLenient, ignoredMethods, ordering);
             }
-            final Optional<BiPredicate> predicate = override(tt);
-            return predicate.map(p -> p.test(x, y))
-                    .orElseGet(() -> {
-                        if (compareWithEquals(tt)) {
-                            return x.equals(y);
-                        }
-                        if (tt.isArray()) {
-                            return compareArrays(tt, x, y);
-                        }
-                        if (comparing(tt, Optional.class)) {
-                            return compareOptionals(tt, x, y);
-                        }
-                        if (comparing(tt, Set.class)) {
-                            return compareSets(x, y);
-                        }
-                        if (comparing(tt, Map.class)) {
-                            return compareMaps(tt, x, y);
-                        }
-                        if (comparing(tt, List.class)) {
-                            return compareLists(tt, x, y);
-                        }
-                        if (comparing(tt, Collection.class)) {
-                            return compareCollections(tt, x, y);
-                        }
-                        if (comparing(tt, Iterable.class)) {
-                            return compareIterables(tt, x, y);
-                        }
-                        return compareDeep(tt, x, y);
-                    });
-        }
-
-        private Predicate<TypeTokenMatcherComparator> matches(final TypeToken tt) {
-            return c -> c.matches(tt);
-        }
-
-        private Optional<BiPredicate> override(final TypeToken tt) {
-            return Optional.ofNullable(
-                    typeTokenMatcherComparators
-                            .stream()
-                            .filter(matches(tt))
-                            .findFirst()
-                            .map(Comparator::predicate)
-                            .orElseGet(() -> typeTokenComparators.getOrDefault(
-                                    tt,
-                                    null)));
+            return options;
         }
 
         private void override(final FieldComparator c) {
@@ -398,12 +356,9 @@ public final class DeepEquals {
                         field.typeToken().getType().getTypeName(),
                         field.fieldName()));
             }
-            this.fieldComparators.put(field, c.predicate());
-        }
-
-        private Optional<BiPredicate> override(final TypeToken tt, final String fieldName) {
-            final Field f = field(tt, fieldName);
-            return Optional.ofNullable(fieldComparators.getOrDefault(f, null));
+            this.fieldComparators.put(field, c);
+            overrides = null;
+            equalizer = null;
         }
 
         private void override(final TypeTokenComparator c) {
@@ -413,88 +368,110 @@ public final class DeepEquals {
                         "there is a comparator already defined for %s",
                         tt.getType().getTypeName()));
             }
-            this.typeTokenComparators.put(tt, c.predicate());
+            this.typeTokenComparators.put(tt, c);
+            overrides = null;
+            equalizer = null;
         }
 
         private void override(final TypeTokenMatcherComparator c) {
             typeTokenMatcherComparators.add(0, c);
+            overrides = null;
+            equalizer = null;
         }
 
-        private void popIndexedNode() {
-            final String top = objectPath.pop();
-            objectPath.push(top.substring(0, top.lastIndexOf('[')));
+        private Overrides overrides() {
+            if (overrides == null) {
+                overrides = Overrides.of(typeTokenComparators,
+                                         typeTokenMatcherComparators,
+                                         fieldComparators,
+                                         tolerance,
+                                         valueTypes);
+            }
+            return overrides;
         }
 
-        private void popNode() {
-            objectPath.pop();
-        }
+    }
 
-        private void printPath() {
-            System.err.println(Joiner.on(".").join(objectPath));
-        }
+    public static <T> TypeTokenComparator comparator(final Class<T> c, final BiPredicate<T, T> f) {
+        return new TypeTokenComparator(TypeToken.of(c), f);
+    }
 
-        private void pushIndexedNode(final int idx) {
-            final String prefix = objectPath.isEmpty() ? "" : objectPath.pop();
-            objectPath.push(format("%s[%d]", prefix, idx));
-        }
+    public static <T> Comparator comparator(final Field field, final BiPredicate<T, T> f) {
+        return new FieldComparator(field, f);
+    }
 
-        private void pushNode(final String name) {
-            objectPath.push(name);
-        }
+    public static <T> TypeTokenComparator comparator(final TypeToken<T> tt, final BiPredicate<T, T> f) {
+        return new TypeTokenComparator(tt, f);
+    }
 
-        private static boolean compareSets(final Object x, final Object y) {
-            final Set<?> setx = (Set<?>) x;
-            final Set<?> sety = (Set<?>) y;
-            return setx.size() == sety.size()
-                    && setx.stream().allMatch(e -> sety.contains(e));
-        }
+    // the hash must be consistent with the predicate for deepHashCode to be consistent
+    // with deepEquals
+    public static <T> TypeTokenComparator comparator(
+            final Class<T> c, final BiPredicate<T, T> f, final ToIntFunction<T> hash) {
+        return new TypeTokenComparator(TypeToken.of(c), f, hash);
+    }
 
-        private static boolean compareWithEquals(final TypeToken tt) {
-            final TypeToken<?> unwrapped = tt.unwrap();
-            final Class<?> t = unwrapped.getRawType();
-            return unwrapped.isPrimitive()
-                    || t.isEnum()
-                    || isOneOf(
-                    t,
-                    String.class,
-                    LocalDate.class,
-                    LocalTime.class,
-                    LocalDateTime.class,
-                    Object.class);
-        }
+    public static <T> Comparator comparator(
+            final Field field, final BiPredicate<T, T> f, final ToIntFunction<T> hash) {
+        return new FieldComparator(field, f, hash);
+    }
 
-        private static boolean comparing(final TypeToken tt, final Class c) {
-            return tt.getRawType().equals(c);
-        }
+    public static <T> TypeTokenComparator comparator(
+            final TypeToken<T> tt, final BiPredicate<T, T> f, final ToIntFunction<T> hash) {
+        return new TypeTokenComparator(tt, f, hash);
+    }
 
-        private static boolean isOneOf(final Class c, final Class... classes) {
-            return ImmutableSet.copyOf(classes).contains(c);
-        }
+    public static <T> ComparisonResult check(final Class<T> c, final T x, final T y) {
+        return DEFAULT.check(c, x, y);
     }
 
-    public static <T> TypeTokenComparator comparator(final Class<T> c, final BiPredicate<T, T> f) {
-        return new TypeTokenComparator(TypeToken.of(c), f);
+    public static <T> ComparisonResult check(final TypeToken<T> tt, final T x, final T y) {
+        return DEFAULT.check(tt, x, y);
     }
 
-    public static <T> Comparator comparator(final Field field, final BiPredicate<T, T> f) {
-        return new FieldComparator(field, f);
+    public static <T> Comparison<T> compare(final Class<T> c, final T x, final T y) {
+        return DEFAULT.compare(c, x, y);
     }
 
-    public static <T> TypeTokenComparator comparator(final TypeToken<T> tt, final BiPredicate<T, T> f) {
-        return new TypeTokenComparator(tt, f);
+    public static <T> Comparison<T> compare(final TypeToken<T> tt, final T x, final T y) {
+        return DEFAULT.compare(tt, x, y);
     }
 
     public static <T> boolean deepEquals(final Class<T> c, final T x, final T y) {
-        return new Stateful().deepEquals(c, x, y);
+        return DEFAULT.deepEquals(c, x, y);
     }
 
     public static <T> boolean deepEquals(final TypeToken<T> tt, final T x, final T y) {
-        return new Stateful().deepEquals(tt, x, y);
+        return DEFAULT.deepEquals(tt, x, y);
+    }
+
+    public static <T> boolean deepEquals(final TypeToken<T> tt, final Stream<T> x, final Stream<T> y) {
+        return DEFAULT.deepEquals(tt, x, y);
+    }
+
+    public static <T> boolean deepEquals(final TypeToken<T> tt, final Spliterator<T> x, final Spliterator<T> y) {
+        return DEFAULT.deepEquals(tt, x, y);
     }
 
     public static boolean deepEqualsTypeUnsafe(
             final Object classOrTypeToken, final Object x, final Object y) {
-        return new Stateful().deepEqualsTypeUnsafe(classOrTypeToken, x, y);
+        return DEFAULT.deepEqualsTypeUnsafe(classOrTypeToken, x, y);
+    }
+
+    public static <T> int deepHashCode(final Class<T> c, final T x) {
+        return DEFAULT.deepHashCode(c, x);
+    }
+
+    public static <T> int deepHashCode(final TypeToken<T> tt, final T x) {
+        return DEFAULT.deepHashCode(tt, x);
+    }
+
+    public static <T> int diff(final Class<T> c, final T x, final T y, final DiffSink sink) {
+        return DEFAULT.diff(c, x, y, sink);
+    }
+
+    public static <T> int diff(final TypeToken<T> tt, final T x, final T y, final DiffSink sink) {
+        return DEFAULT.diff(tt, x, y, sink);
     }
 
     public static Field field(final Class<?> c, final String name) {
@@ -509,12 +486,30 @@ public final class DeepEquals {
         return new Stateful();
     }
 
+    static boolean compareSets(final Object x, final Object y) {
+        final Set<?> setx = (Set<?>) x;
+        final Set<?> sety = (Set<?>) y;
+        if (setx.size() != sety.size()) {
+            return false;
+        }
+        for (final Object e : setx) {
+            if (!sety.contains(e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean comparing(final TypeToken tt, final Class c) {
+        return tt.getRawType().equals(c);
+    }
+
     // this method cannot be placed in a general purpose class (even though it is clearly
     // general-purpose) because otherwise the tests would not work due to the issue of not
     // being allowed to call methods on inner classes reflectively (even though the method may
     // be public)
     // http://www.javaspecialists.eu/archive/Issue117.html
-    private static TypeToken getTypeArgToken(final TypeToken tt, final int i) {
+    static TypeToken getTypeArgToken(final TypeToken tt, final int i) {
         final ParameterizedType pt = (ParameterizedType) (tt.getType());
         return TypeToken.of(pt.getActualTypeArguments()[i]);
     }
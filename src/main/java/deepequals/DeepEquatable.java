@@ -0,0 +1,14 @@
+package deepequals;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// marks a class for the deepequals-processor annotation processor, which generates the
+// accessors of its properties at compile time. With the processor on the annotation
+// processor path, DeepEquals reads the properties of the class through the generated
+// accessors instead of reflecting over it. Without it, the annotation has no effect.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DeepEquatable {}
@@ -0,0 +1,129 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+import deepequals.comparator.Comparator;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+import static deepequals.PrimitiveArrays.asList;
+
+// a hash code that agrees with the configured deep equality: objects that are deep
+// equal get the same hash. Whatever the equality cannot see (ignored properties, the
+// order of lenient sequences) does not contribute, and neither do overridden types and
+// properties unless their comparator comes with a hash.
+@SuppressWarnings({"rawtypes", "unchecked", "UnstableApiUsage"})
+final class DeepHasher {
+    private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final DispatchTable table;
+    private final int maxDepth;
+
+    private DeepHasher(final DispatchTable table, final int maxDepth) {
+        this.table = table;
+        this.maxDepth = maxDepth;
+    }
+
+    // stops at maxDepth, which keeps it cheap and still consistent with the equality
+    static DeepHasher bounded(final DispatchTable table, final int maxDepth) {
+        return new DeepHasher(table, maxDepth);
+    }
+
+    // walks the whole object and fails on cycles, like the equality does
+    static DeepHasher full(final DispatchTable table) {
+        return new DeepHasher(table, UNBOUNDED);
+    }
+
+    int hash(final TypeToken tt, final Object x) {
+        return hash(tt, x, 0, maxDepth == UNBOUNDED ? new CycleDetector() : null);
+    }
+
+    private int hash(final TypeToken tt,
+                     final Object x,
+                     final int depth,
+                     final CycleDetector cycles) {
+        if (x == null || depth == maxDepth) {
+            return 0;
+        }
+        final Dispatch d = table.get(tt);
+        switch (d.kind) {
+            case OVERRIDE:
+                return hash(d.override, x);
+            case EQUALS:
+            case SET:
+                return x.hashCode();
+            case ARRAY:
+                return hashSequence(d.element, asList(x), depth, cycles);
+            case OPTIONAL:
+                final Optional<?> opt = (Optional<?>) x;
+                return opt.isPresent() ? 31 + hash(d.element, opt.get(), depth + 1, cycles) : 0;
+            case MAP:
+                return hashMap(d.element, (Map<?, ?>) x, depth, cycles);
+            case LIST:
+            case COLLECTION:
+            case ITERABLE:
+                return hashSequence(d.element, (Iterable<?>) x, depth, cycles);
+            default:
+                return hashDeep(d, x, depth, cycles);
+        }
+    }
+
+    private int hashDeep(final Dispatch d,
+                         final Object x,
+                         final int depth,
+                         final CycleDetector cycles) {
+        // in the order of the cost: the hash of an object must not change when an adaptive
+        // plan reorders the getters, e.g. between the buckets of a lenient match
+        int result = 1;
+        for (final Dispatch.Property p : d.propertiesByCost()) {
+            final Getter g = p.getter;
+            if (cycles != null) {
+                cycles.add(g);
+                final Cycle c = cycles.cycle();
+                if (c != null) {
+                    throw new CycleException(c.toString());
+                }
+            }
+            final Object value = g.get(x);
+            result = 31 * result + (p.override != null
+                    ? hash(p.override, value)
+                    : hash(g.type(), value, depth + 1, cycles));
+            if (cycles != null) {
+                cycles.remove();
+            }
+        }
+        return result;
+    }
+
+    private int hashMap(final TypeToken valueType,
+                        final Map<?, ?> x,
+                        final int depth,
+                        final CycleDetector cycles) {
+        // keys are compared with equals, values deeply; summed like Map.hashCode
+        int result = 0;
+        for (final Map.Entry<?, ?> e : x.entrySet()) {
+            result += Objects.hashCode(e.getKey())
+                    ^ hash(valueType, e.getValue(), depth + 1, cycles);
+        }
+        return result;
+    }
+
+    private int hashSequence(final TypeToken componentType,
+                             final Iterable<?> x,
+                             final int depth,
+                             final CycleDetector cycles) {
+        int result = 1;
+        for (final Object e : x) {
+            final int h = hash(componentType, e, depth + 1, cycles);
+            result = table.orderLenient ? result + h : 31 * result + h;
+        }
+        return result;
+    }
+
+    private static int hash(final Comparator c, final Object x) {
+        final ToIntFunction hash = c.hash();
+        return hash == null || x == null ? 0 : hash.applyAsInt(x);
+    }
+}
@@ -0,0 +1,18 @@
+package deepequals;
+
+// receives the differences between two objects as diff finds them, in depth first order.
+// The path is that of verbose(): property names separated by dots, [i] for the index of
+// an element in a sequence and [key] for the key of an entry in a map.
+@FunctionalInterface
+public interface DiffSink {
+    enum Reason {
+        // the values are not equal, per equals or a comparator, or one of them is null
+        NOT_EQUAL,
+        // an element or entry found on the left side only; the right value is null
+        ONLY_LEFT,
+        // an element or entry found on the right side only; the left value is null
+        ONLY_RIGHT
+    }
+
+    void difference(String path, Object left, Object right, Reason reason);
+}
@@ -0,0 +1,454 @@
+package deepequals;
+
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
+import deepequals.comparator.Comparator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static deepequals.LenientMatching.HASH_DEPTH;
+import static deepequals.PrimitiveArrays.asList;
+
+// the differences between two objects under the configured deep equality. Unlike the
+// engines, it goes on after a mismatch and hands every difference to the sink as soon
+// as it is found, so that it holds no more than the path it is on, however many
+// differences there are. Order-lenient sequences are the exception: telling which
+// elements have no match takes a bit per element.
+@SuppressWarnings({"rawtypes", "unchecked", "UnstableApiUsage"})
+final class Differ {
+    private final DispatchTable table;
+    private final boolean byIdentity;
+    private final DeepHasher bucketHasher;
+
+    Differ(final DispatchTable table, final boolean byIdentity) {
+        this.table = table;
+        this.byIdentity = byIdentity;
+        this.bucketHasher = DeepHasher.bounded(table, HASH_DEPTH);
+    }
+
+    <T> Comparison<T> compare(final TypeToken<T> tt, final T x, final T y) {
+        final List<Comparison.Difference> differences = new ArrayList<>();
+        diff(tt, x, y, Comparison.collect(differences), Integer.MAX_VALUE);
+        return new Comparison<>(this, tt, differences);
+    }
+
+    int diff(final TypeToken tt,
+             final Object x,
+             final Object y,
+             final DiffSink sink,
+             final int maxDifferences) {
+        if (maxDifferences < 1) {
+            throw new IllegalArgumentException("the maximum number of differences must be positive");
+        }
+        final Run run = new Run(sink, maxDifferences);
+        run.diff(table.get(tt), x, y);
+        return run.found;
+    }
+
+    // hands the differences within the subtree of x and y at the given path to the sink,
+    // with their full paths, and returns the path of the subtree compared: the given one
+    // or a prefix of it where the objects do not go as deep on both sides or the subtree
+    // is compared as a whole, e.g. by a comparator or as an order-lenient sequence
+    String diffAt(final TypeToken tt,
+                  final Object x,
+                  final Object y,
+                  final String path,
+                  final DiffSink sink) {
+        return new Run(sink, Integer.MAX_VALUE).diffAt(table.get(tt), x, y, path);
+    }
+
+    private static List<?> elements(final Dispatch d, final Object sequence) {
+        if (d.kind == NodeKind.ARRAY) {
+            return asList(sequence);
+        }
+        return sequence instanceof List ? (List<?>) sequence : Lists.newArrayList((Iterable<?>) sequence);
+    }
+
+    // the index in a segment of a path, -1 if it is none
+    private static int index(final String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isSequence(final NodeKind kind) {
+        return kind == NodeKind.ARRAY
+                || kind == NodeKind.LIST
+                || kind == NodeKind.COLLECTION
+                || kind == NodeKind.ITERABLE;
+    }
+
+    // the key of x whose segment starts the rest of the path at the given position; the
+    // longest one, should the string of a key start with that of another
+    private static Object key(final Map<?, ?> x, final String at, final int from) {
+        Object result = null;
+        int length = -1;
+        for (final Object k : x.keySet()) {
+            final String segment = "[" + k + "]";
+            final int end = from + segment.length();
+            if (at.startsWith(segment, from)
+                    && (end == at.length() || at.charAt(end) == '.' || at.charAt(end) == '[')
+                    && segment.length() > length) {
+                result = k;
+                length = segment.length();
+            }
+        }
+        return result;
+    }
+
+    private static Dispatch.Property property(final Dispatch d, final String name) {
+        for (final Dispatch.Property p : d.properties()) {
+            if (p.getter.name().equals(name)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    // a single diff. While matching the elements of lenient sequences it is a plain
+    // comparison that stops at the first difference, which it does not report.
+    private final class Run {
+        private final DiffSink sink;
+        private final int max;
+        private final FailurePath path;
+        private final CycleDetector cycles;
+        private final VisitedPairs visited;
+        // the order of the properties of each type as first seen by the run, if adaptive
+        private final Map<Dispatch, Dispatch.Property[]> orders;
+        private int found;
+        private boolean matching;
+        private boolean mismatched;
+
+        Run(final DiffSink sink, final int max) {
+            this.sink = sink;
+            this.max = max;
+            this.path = new FailurePath();
+            this.cycles = new CycleDetector();
+            this.visited = byIdentity ? new VisitedPairs() : null;
+            this.orders = table.options.ordering != null ? new HashMap<>() : null;
+        }
+
+        private boolean diff(final Dispatch d, final Object x, final Object y) {
+            if (x == y) {
+                return true;
+            }
+            if (x == null || y == null) {
+                return report(x, y, DiffSink.Reason.NOT_EQUAL);
+            }
+            switch (d.kind) {
+                case OVERRIDE:
+                    return d.override.predicate().test(x, y)
+                            || report(x, y, DiffSink.Reason.NOT_EQUAL);
+                case EQUALS:
+                    return x.equals(y) || report(x, y, DiffSink.Reason.NOT_EQUAL);
+                default:
+                    break;
+            }
+            if (visited == null) {
+                return diffStructurally(d, x, y);
+            }
+            // a pair compared further up is taken to be equal, as with the engines
+            final VisitedPairs.Pair pair = visited.enter(d.typeToken, x, y);
+            if (pair == null) {
+                return true;
+            }
+            boolean equals = false;
+            try {
+                equals = diffStructurally(d, x, y);
+            } finally {
+                visited.exit(pair, equals);
+            }
+            return equals;
+        }
+
+        // down the path as far as it goes, then a diff of what is there
+        private String diffAt(final Dispatch root, final Object xroot, final Object yroot, final String at) {
+            Dispatch d = root;
+            Object x = xroot;
+            Object y = yroot;
+            Comparator override = null;
+            int consumed = 0;
+            while (consumed < at.length() && override == null && x != null && y != null && x != y) {
+                if (d.kind == NodeKind.OPTIONAL) {
+                    // no segment of its own
+                    final Optional<?> xo = (Optional<?>) x;
+                    final Optional<?> yo = (Optional<?>) y;
+                    if (!xo.isPresent() || !yo.isPresent()) {
+                        break;
+                    }
+                    d = d.elementDispatch;
+                    x = xo.get();
+                    y = yo.get();
+                } else if (d.kind == NodeKind.DEEP) {
+                    final int start = consumed > 0 ? consumed + 1 : 0;
+                    if (consumed > 0 && at.charAt(consumed) != '.') {
+                        break;
+                    }
+                    int end = start;
+                    while (end < at.length() && at.charAt(end) != '.' && at.charAt(end) != '[') {
+                        end++;
+                    }
+                    final Dispatch.Property p = property(d, at.substring(start, end));
+                    if (p == null) {
+                        break;
+                    }
+                    cycles.add(p.getter);
+                    pushGetter(p.getter);
+                    d = p.dispatch;
+                    override = p.override;
+                    x = p.getter.get(x);
+                    y = p.getter.get(y);
+                    consumed = end;
+                } else if (isSequence(d.kind) && !table.orderLenient) {
+                    final int end = at.indexOf(']', consumed);
+                    final int idx = at.charAt(consumed) == '[' && end > consumed + 1
+                            ? index(at.substring(consumed + 1, end))
+                            : -1;
+                    final List<?> xs = elements(d, x);
+                    final List<?> ys = elements(d, y);
+                    if (idx < 0 || idx >= xs.size() || idx >= ys.size()) {
+                        break;
+                    }
+                    pushIndex(idx);
+                    d = d.elementDispatch;
+                    x = xs.get(idx);
+                    y = ys.get(idx);
+                    consumed = end + 1;
+                } else if (d.kind == NodeKind.MAP) {
+                    final Object key = key((Map<?, ?>) x, at, consumed);
+                    if (key == null || !((Map<?, ?>) y).containsKey(key)) {
+                        break;
+                    }
+                    pushKey(key);
+                    d = d.elementDispatch;
+                    x = ((Map<?, ?>) x).get(key);
+                    y = ((Map<?, ?>) y).get(key);
+                    consumed += String.valueOf(key).length() + 2;
+                } else {
+                    break;
+                }
+            }
+            if (override == null) {
+                diff(d, x, y);
+            } else if (!override.predicate().test(x, y)) {
+                report(x, y, DiffSink.Reason.NOT_EQUAL);
+            }
+            return at.substring(0, consumed);
+        }
+
+        private boolean diffDeep(final Dispatch d, final Object x, final Object y) {
+            boolean equals = true;
+            for (final Dispatch.Property p : d.properties(orders)) {
+                if (done()) {
+                    break;
+                }
+                if (p.primitiveEquality != null && p.primitiveEquality.test(x, y)) {
+                    continue;
+                }
+                final Getter getter = p.getter;
+                cycles.add(getter);
+                final Cycle c = cycles.cycle();
+                if (c != null) {
+                    throw new CycleException(c.toString());
+                }
+                pushGetter(getter);
+                final Object xfield = getter.get(x);
+                final Object yfield = getter.get(y);
+                equals &= p.override == null
+                        ? diff(p.dispatch, xfield, yfield)
+                        : p.override.predicate().test(xfield, yfield)
+                                || report(xfield, yfield, DiffSink.Reason.NOT_EQUAL);
+                pop();
+                cycles.remove();
+            }
+            return equals;
+        }
+
+        private boolean diffInLockstep(final Dispatch element,
+                                       final Iterable<?> x,
+                                       final Iterable<?> y) {
+            final Iterator<?> itx = x.iterator();
+            final Iterator<?> ity = y.iterator();
+            boolean equals = true;
+            int idx = 0;
+            while (itx.hasNext() && ity.hasNext() && !done()) {
+                pushIndex(idx++);
+                equals &= diff(element, itx.next(), ity.next());
+                pop();
+            }
+            while (itx.hasNext() && !done()) {
+                pushIndex(idx++);
+                equals = report(itx.next(), null, DiffSink.Reason.ONLY_LEFT);
+                pop();
+            }
+            while (ity.hasNext() && !done()) {
+                pushIndex(idx++);
+                equals = report(null, ity.next(), DiffSink.Reason.ONLY_RIGHT);
+                pop();
+            }
+            return equals;
+        }
+
+        private boolean diffLenient(final Dispatch element, final List<?> x, final List<?> y) {
+            final boolean[] equals = {true};
+            LenientMatching.unmatched(
+                    x,
+                    y,
+                    e -> bucketHasher.hash(element.typeToken, e),
+                    (e1, e2) -> match(element, e1, e2),
+                    i -> {
+                        pushIndex(i);
+                        equals[0] = report(x.get(i), null, DiffSink.Reason.ONLY_LEFT);
+                        pop();
+                        return !done();
+                    },
+                    i -> {
+                        pushIndex(i);
+                        equals[0] = report(null, y.get(i), DiffSink.Reason.ONLY_RIGHT);
+                        pop();
+                        return !done();
+                    });
+            return equals[0];
+        }
+
+        private boolean diffMaps(final Dispatch d, final Map<?, ?> x, final Map<?, ?> y) {
+            boolean equals = true;
+            for (final Map.Entry<?, ?> e : x.entrySet()) {
+                if (done()) {
+                    return equals;
+                }
+                pushKey(e.getKey());
+                equals &= y.containsKey(e.getKey())
+                        ? diff(d.elementDispatch, e.getValue(), y.get(e.getKey()))
+                        : report(e.getValue(), null, DiffSink.Reason.ONLY_LEFT);
+                pop();
+            }
+            for (final Map.Entry<?, ?> e : y.entrySet()) {
+                if (done()) {
+                    return equals;
+                }
+                if (!x.containsKey(e.getKey())) {
+                    pushKey(e.getKey());
+                    equals = report(null, e.getValue(), DiffSink.Reason.ONLY_RIGHT);
+                    pop();
+                }
+            }
+            return equals;
+        }
+
+        private boolean diffOptionals(final Dispatch d, final Optional<?> x, final Optional<?> y) {
+            if (x.isPresent() && y.isPresent()) {
+                return diff(d.elementDispatch, x.get(), y.get());
+            }
+            return x.isPresent() == y.isPresent() || report(x, y, DiffSink.Reason.NOT_EQUAL);
+        }
+
+        private boolean diffSequences(final Dispatch element, final Iterable<?> x, final Iterable<?> y) {
+            return table.orderLenient
+                    ? diffLenient(element, Lists.newArrayList(x), Lists.newArrayList(y))
+                    : diffInLockstep(element, x, y);
+        }
+
+        // the elements are compared with equals, the path stays that of the sets
+        private boolean diffSets(final Set<?> x, final Set<?> y) {
+            boolean equals = true;
+            for (final Object e : x) {
+                if (done()) {
+                    return equals;
+                }
+                if (!y.contains(e)) {
+                    equals = report(e, null, DiffSink.Reason.ONLY_LEFT);
+                }
+            }
+            for (final Object e : y) {
+                if (done()) {
+                    return equals;
+                }
+                if (!x.contains(e)) {
+                    equals = report(null, e, DiffSink.Reason.ONLY_RIGHT);
+                }
+            }
+            return equals;
+        }
+
+        private boolean diffStructurally(final Dispatch d, final Object x, final Object y) {
+            switch (d.kind) {
+                case ARRAY:
+                    return diffSequences(d.elementDispatch, asList(x), asList(y));
+                case OPTIONAL:
+                    return diffOptionals(d, (Optional<?>) x, (Optional<?>) y);
+                case SET:
+                    return diffSets((Set<?>) x, (Set<?>) y);
+                case MAP:
+                    return diffMaps(d, (Map<?, ?>) x, (Map<?, ?>) y);
+                case LIST:
+                case COLLECTION:
+                case ITERABLE:
+                    return diffSequences(d.elementDispatch, (Iterable<?>) x, (Iterable<?>) y);
+                default:
+                    return diffDeep(d, x, y);
+            }
+        }
+
+        private boolean done() {
+            return matching ? mismatched : found >= max;
+        }
+
+        // whether two elements of lenient sequences match, in place: the cycle detector is
+        // back where it was once they are compared, and the pairs proven equal by a failed
+        // attempt are rolled back, as in the Interpreter
+        private boolean match(final Dispatch element, final Object x, final Object y) {
+            final boolean wasMatching = matching;
+            final boolean wasMismatched = mismatched;
+            final int mark = visited != null ? visited.mark() : 0;
+            matching = true;
+            mismatched = false;
+            boolean equals = false;
+            try {
+                equals = diff(element, x, y);
+            } finally {
+                matching = wasMatching;
+                mismatched = wasMismatched;
+            }
+            if (!equals && visited != null) {
+                visited.rollback(mark);
+            }
+            return equals;
+        }
+
+        private void pop() {
+            path.pop();
+        }
+
+        private void pushGetter(final Getter g) {
+            path.pushGetter(g);
+        }
+
+        private void pushIndex(final int idx) {
+            path.pushIndex(idx);
+        }
+
+        private void pushKey(final Object key) {
+            path.pushKey(key);
+        }
+
+        // always false, for the callers to return
+        private boolean report(final Object x, final Object y, final DiffSink.Reason reason) {
+            if (matching) {
+                mismatched = true;
+                return false;
+            }
+            found++;
+            sink.difference(path.toString(), x, y, reason);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+import deepequals.comparator.Comparator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+import static deepequals.DeepEquals.getTypeArgToken;
+
+// everything about comparing the values of a type that does not depend on the values:
+// computed once per type token and configuration, see DispatchTable
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+final class Dispatch {
+    final TypeToken typeToken;
+    final NodeKind kind;
+    // the comparator of an OVERRIDE
+    final Comparator override;
+    // the type of the elements of a sequence or an optional, of the values of a map
+    final TypeToken element;
+    // and its dispatch, so that visiting an element takes no lookup
+    final Dispatch elementDispatch;
+    // an ARRAY compared in bulk, see PrimitiveArrays
+    final boolean bulk;
+    private final DispatchTable table;
+    private volatile TypePlan plan;
+    // the properties in the order of the cost, which never changes, and in the current
+    // order of the getters, which changes with an adaptive plan
+    private volatile Property[] byCost;
+    private volatile Property[] properties;
+    // the order of the getters the properties follow, for adaptive plans
+    private volatile List<Getter> orderedAs;
+
+    Dispatch(final TypeToken typeToken, final DispatchTable table) {
+        this.typeToken = typeToken;
+        this.kind = NodeKind.of(typeToken, table.overrides);
+        this.override = table.overrides.forType(typeToken);
+        this.element = element(typeToken, kind);
+        this.elementDispatch = element != null ? table.get(element) : null;
+        this.bulk = kind == NodeKind.ARRAY
+                && !table.orderLenient
+                && elementDispatch.kind == NodeKind.EQUALS;
+        this.table = table;
+    }
+
+    // an adaptive plan only: a comparison of two objects of the type ended, with a
+    // mismatch in the given property, if not null
+    void observe(final Property mismatch) {
+        plan().observe(mismatch != null ? mismatch.slot : -1);
+    }
+
+    // the properties of a DEEP type in the current order of the getters. Resolved again
+    // when an adaptive plan reorders its getters, out of the same Property instances.
+    // Racy but idempotent; the volatile fields publish the array safely to other threads.
+    Property[] properties() {
+        final Property[] fixed = propertiesByCost();
+        if (table.options.ordering == null) {
+            return fixed;
+        }
+        final TypePlan plan = plan();
+        final List<Getter> getters = plan.getters();
+        Property[] result = properties;
+        if (result == null || orderedAs != getters) {
+            result = new Property[getters.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = fixed[plan.slot(getters.get(i))];
+            }
+            properties = result;
+            orderedAs = getters;
+        }
+        return result;
+    }
+
+    // the same, taken from the snapshot of a comparison if any: the first order it saw is
+    // the one it keeps, whatever the plan learns meanwhile
+    Property[] properties(final Map<Dispatch, Property[]> snapshot) {
+        return snapshot != null ? snapshot.computeIfAbsent(this, Dispatch::properties) : properties();
+    }
+
+    // the properties in the order of the cost, the same whatever the order learned: what
+    // has to be computed the same way every time, e.g. a hash, follows this one. Resolved
+    // on first use: a dispatch must not reflect over types whose values may never be
+    // visited.
+    Property[] propertiesByCost() {
+        Property[] result = byCost;
+        if (result == null) {
+            final List<Getter> getters = plan().byCost();
+            result = new Property[getters.size()];
+            for (int i = 0; i < result.length; i++) {
+                final Getter g = getters.get(i);
+                result[i] = new Property(g,
+                                         table.overrides.forField(typeToken, g.name()),
+                                         table.get(g.type()),
+                                         i,
+                                         table.overrides.tolerance);
+            }
+            byCost = result;
+        }
+        return result;
+    }
+
+    private TypePlan plan() {
+        TypePlan result = plan;
+        if (result == null) {
+            result = table.options.plan(typeToken);
+            plan = result;
+        }
+        return result;
+    }
+
+    private static TypeToken element(final TypeToken tt, final NodeKind kind) {
+        switch (kind) {
+            case ARRAY:
+                return tt.getComponentType();
+            case OPTIONAL:
+            case LIST:
+            case COLLECTION:
+            case ITERABLE:
+                return getTypeArgToken(tt, 0);
+            case MAP:
+                return getTypeArgToken(tt, 1);
+            default:
+                return null;
+        }
+    }
+
+    static final class Property {
+        final Getter getter;
+        // the comparator of the property, if any
+        final Comparator override;
+        // the dispatch of the type of the property
+        final Dispatch dispatch;
+        // compares a primitive property compared with equals, or with the tolerance, without
+        // boxing it, if possible
+        final BiPredicate<Object, Object> primitiveEquality;
+        // of the mismatch counter in the plan, and in the order of the cost
+        final int slot;
+
+        Property(final Getter getter,
+                 final Comparator override,
+                 final Dispatch dispatch,
+                 final int slot,
+                 final Tolerance tolerance) {
+            this.getter = getter;
+            this.override = override;
+            this.dispatch = dispatch;
+            this.slot = slot;
+            this.primitiveEquality = override != null
+                    ? null
+                    : dispatch.kind == NodeKind.EQUALS
+                    ? getter.primitiveEquality()
+                    : primitiveEquality(getter, dispatch, tolerance);
+        }
+
+        private static BiPredicate<Object, Object> primitiveEquality(final Getter getter,
+                                                                     final Dispatch dispatch,
+                                                                     final Tolerance tolerance) {
+            final TypeToken type = getter.type();
+            return tolerance != null
+                    && type.isPrimitive()
+                    && dispatch.override == tolerance.comparator(type)
+                    && getter.doubleValue() != null
+                    ? tolerance.primitiveEquality(getter.doubleValue(), type.getRawType() == float.class)
+                    : null;
+        }
+    }
+}
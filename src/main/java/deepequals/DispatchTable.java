@@ -0,0 +1,32 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// the dispatch of every type token met so far under one configuration: visiting a value
+// takes a single lookup instead of going through the overrides and the type checks again
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+final class DispatchTable {
+    final Options options;
+    final Overrides overrides;
+    final boolean orderLenient;
+    private final ConcurrentMap<TypeToken, Dispatch> table = new ConcurrentHashMap<>();
+
+    DispatchTable(final Options options, final Overrides overrides, final boolean orderLenient) {
+        this.options = options;
+        this.overrides = overrides;
+        this.orderLenient = orderLenient;
+    }
+
+    Dispatch get(final TypeToken tt) {
+        final Dispatch result = table.get(tt);
+        if (result != null) {
+            return result;
+        }
+        final Dispatch dispatch = new Dispatch(tt, this);
+        final Dispatch previous = table.putIfAbsent(tt, dispatch);
+        return previous != null ? previous : dispatch;
+    }
+}
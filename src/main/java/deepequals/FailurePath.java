@@ -0,0 +1,138 @@
+package deepequals;
+
+import com.google.common.collect.ImmutableList;
+import deepequals.ComparisonResult.Segment;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+
+// the path to the first mismatch, recorded while the comparison unwinds: every level
+// that fails adds its own segment in front of the ones recorded below it, and the
+// lowest one the values that differ there. Nothing is recorded, let alone formatted, as
+// long as the objects compare equal. A diff instead pushes and pops the segments on its
+// way down and up.
+final class FailurePath {
+    // a Getter for a property, an Integer for an index into a sequence, a Key for the
+    // key of an entry in a map
+    private final ArrayDeque<Object> segments = new ArrayDeque<>();
+    private Object left;
+    private Object right;
+    private DiffSink.Reason reason;
+
+    void clear() {
+        segments.clear();
+        left = null;
+        right = null;
+        reason = null;
+    }
+
+    // the idx-th elements of two sequences differ, or only one of them has any
+    void element(final int idx, final List<?> x, final List<?> y) {
+        index(idx);
+        if (idx >= y.size()) {
+            values(x.get(idx), null, DiffSink.Reason.ONLY_LEFT);
+        } else if (idx >= x.size()) {
+            values(null, y.get(idx), DiffSink.Reason.ONLY_RIGHT);
+        } else {
+            values(x.get(idx), y.get(idx), DiffSink.Reason.NOT_EQUAL);
+        }
+    }
+
+    void getter(final Getter g) {
+        segments.addFirst(g);
+    }
+
+    void index(final int idx) {
+        segments.addFirst(idx);
+    }
+
+    void key(final Object key) {
+        segments.addFirst(new Key(key));
+    }
+
+    void pop() {
+        segments.removeLast();
+    }
+
+    // and takes its values, unless this path has some already
+    void prepend(final FailurePath other) {
+        final Iterator<Object> it = other.segments.descendingIterator();
+        while (it.hasNext()) {
+            segments.addFirst(it.next());
+        }
+        if (reason == null) {
+            values(other.left, other.right, other.reason);
+        }
+    }
+
+    // once the comparison unwound
+    ComparisonResult result() {
+        return new ComparisonResult(segments(), left, right, reason);
+    }
+
+    List<Segment> segments() {
+        final ImmutableList.Builder<Segment> result = ImmutableList.builder();
+        for (final Object s : segments) {
+            if (s instanceof Getter) {
+                result.add(new Segment(Segment.Kind.PROPERTY, ((Getter) s).name()));
+            } else if (s instanceof Key) {
+                result.add(new Segment(Segment.Kind.KEY, ((Key) s).key));
+            } else {
+                result.add(new Segment(Segment.Kind.INDEX, s));
+            }
+        }
+        return result.build();
+    }
+
+    void pushGetter(final Getter g) {
+        segments.addLast(g);
+    }
+
+    void pushIndex(final int idx) {
+        segments.addLast(idx);
+    }
+
+    void pushKey(final Object key) {
+        segments.addLast(new Key(key));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        for (final Object s : segments) {
+            if (s instanceof Getter) {
+                if (result.length() > 0) {
+                    result.append('.');
+                }
+                result.append(((Getter) s).name());
+            } else {
+                result.append('[').append(s).append(']');
+            }
+        }
+        return result.toString();
+    }
+
+    // where the comparison failed: the values recorded first are those further down,
+    // and the levels above keep them
+    void values(final Object left, final Object right, final DiffSink.Reason reason) {
+        if (this.reason == null) {
+            this.left = left;
+            this.right = right;
+            this.reason = reason;
+        }
+    }
+
+    private static final class Key {
+        private final Object key;
+
+        Key(final Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(key);
+        }
+    }
+}
@@ -3,10 +3,14 @@ package deepequals;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 import static java.lang.reflect.Modifier.isFinal;
 import static java.util.Arrays.stream;
@@ -18,10 +22,20 @@ final class FieldBasedGetter implements Getter {
 
     private final Field field;
     private final TypeToken typeToken;
+    private final TypeToken type;
+    private final Function<Object, Object> accessor;
+    private final BiPredicate<Object, Object> primitiveEquality;
+    private final ToDoubleFunction<Object> doubleValue;
+    private final MethodHandle handle;
 
     private FieldBasedGetter(final Field field, final TypeToken typeToken) {
         this.field = field;
         this.typeToken = typeToken;
+        this.accessor = Accessors.accessor(field);
+        this.primitiveEquality = Accessors.primitiveEquality(field);
+        this.doubleValue = Accessors.doubleValue(field);
+        this.handle = Accessors.unreflected(field);
+        this.type = typeToken.resolveType(field.getGenericType());
     }
 
     @Override
@@ -29,6 +43,11 @@ final class FieldBasedGetter implements Getter {
         return field.getDeclaringClass();
     }
 
+    @Override
+    public ToDoubleFunction<Object> doubleValue() {
+        return doubleValue;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -40,11 +59,12 @@ final class FieldBasedGetter implements Getter {
 
     @Override
     public Object get(final Object x) {
-        try {
-            return field.get(x);
-        } catch (final IllegalAccessException ex) {
-            throw new RuntimeException(ex);
-        }
+        return accessor.apply(x);
+    }
+
+    @Override
+    public MethodHandle handle() {
+        return handle;
     }
 
     @Override
@@ -57,18 +77,24 @@ final class FieldBasedGetter implements Getter {
         return field.getName();
     }
 
+    @Override
+    public BiPredicate<Object, Object> primitiveEquality() {
+        return primitiveEquality;
+    }
+
     @Override
     public TypeToken type() {
-        return typeToken.resolveType(field.getGenericType());
+        return type;
     }
 
 
     static Set<Getter> fieldBasedGetters(final TypeToken tt) {
-        final Set<FieldBasedGetter> result = stream(tt.getRawType().getFields())
+        final Set<Field> fields = stream(tt.getRawType().getFields())
                 .filter(IS_FINAL)
-                .map(f -> new FieldBasedGetter(f, tt))
                 .collect(toSet());
-        result.forEach(g -> g.field.setAccessible(true));
-        return ImmutableSet.copyOf(result);
+        fields.forEach(f -> f.setAccessible(true));
+        return ImmutableSet.copyOf(fields.stream()
+                                           .map(f -> new FieldBasedGetter(f, tt))
+                                           .collect(toSet()));
     }
 }
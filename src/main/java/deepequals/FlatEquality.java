@@ -0,0 +1,220 @@
+package deepequals;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.invoke.MethodHandles.constant;
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodType.methodType;
+
+// the equality of objects whose properties are all compared as values, i.e. with equals,
+// a comparator or the tolerance, composed out of method handles on their getters into a
+// single (Object, Object)boolean handle. Unlike a loop over the properties, there is no
+// megamorphic call left in it: the getters are invoked directly, primitives compared
+// unboxed and the equals of final classes called on their own type, much as in a
+// hand-written equals. Properties are compared in the order given, and the first one that
+// differs ends the comparison. The handle is then held as a constant by a class defined
+// for it alone, see ConstantEquality, so that the JIT compiles it as a whole.
+@SuppressWarnings({"rawtypes", "unchecked"})
+final class FlatEquality {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType TEST = methodType(boolean.class, Object.class, Object.class);
+    private static final MethodHandle TRUE = always(true);
+    private static final MethodHandle FALSE = always(false);
+    private static final MethodHandle SAME = find("same", TEST);
+    private static final MethodHandle EITHER_NULL = find("eitherNull", TEST);
+    private static final MethodHandle BOOLEANS = find("booleans", boolean.class);
+    private static final MethodHandle DOUBLES = find("doubles", double.class);
+    private static final MethodHandle LONGS = find("longs", long.class);
+    private static final MethodHandle EQUALS = nullSafe(virtual(Object.class));
+    private static final MethodHandle PREDICATE = predicate();
+    private static final byte[] TEMPLATE = template();
+
+    private FlatEquality() {}
+
+    // null unless every property can be compared that way
+    static BiPredicate<Object, Object> of(final Dispatch.Property[] properties) {
+        MethodHandle result = TRUE;
+        for (int i = properties.length - 1; i >= 0; i--) {
+            final MethodHandle p = property(properties[i]);
+            if (p == null) {
+                return null;
+            }
+            result = guardWithTest(p, result, FALSE);
+        }
+        return spin(result);
+    }
+
+    private static MethodHandle always(final boolean value) {
+        return dropArguments(constant(boolean.class, value), 0, Object.class, Object.class);
+    }
+
+    private static boolean booleans(final boolean x, final boolean y) {
+        return x == y;
+    }
+
+    // float widens to double without changing its equality
+    private static boolean doubles(final double x, final double y) {
+        return doubleToLongBits(x) == doubleToLongBits(y);
+    }
+
+    private static boolean eitherNull(final Object x, final Object y) {
+        return x == null || y == null;
+    }
+
+    // the equals of a final class is called on the class, that of the others dispatched.
+    // Enums are equal only to themselves
+    private static MethodHandle equality(final Class<?> type) {
+        if (type.isEnum()) {
+            return SAME;
+        }
+        final MethodHandle equals = Modifier.isFinal(type.getModifiers()) ? virtual(type) : null;
+        return equals != null ? nullSafe(equals) : EQUALS;
+    }
+
+    // the comparison of two primitives of the type
+    private static MethodHandle find(final String name, final Class<?> type) {
+        return find(name, methodType(boolean.class, type, type));
+    }
+
+    private static MethodHandle find(final String name, final MethodType type) {
+        try {
+            return LOOKUP.findStatic(FlatEquality.class, name, type);
+        } catch (final ReflectiveOperationException e) {
+            throw propagate(e);
+        }
+    }
+
+    private static boolean longs(final long x, final long y) {
+        return x == y;
+    }
+
+    // as Node.test: the same object, or neither null and then the comparison
+    private static MethodHandle nullSafe(final MethodHandle comparison) {
+        return guardWithTest(SAME, TRUE, guardWithTest(EITHER_NULL, FALSE, comparison));
+    }
+
+    private static MethodHandle predicate() {
+        try {
+            return LOOKUP.findVirtual(BiPredicate.class, "test", TEST);
+        } catch (final ReflectiveOperationException e) {
+            throw propagate(e);
+        }
+    }
+
+    private static MethodHandle predicate(final BiPredicate predicate) {
+        return PREDICATE.bindTo(predicate);
+    }
+
+    // the comparison of a property of two objects, null if it is not compared as a value
+    // or cannot be read through a handle
+    private static MethodHandle property(final Dispatch.Property p) {
+        if (p.override != null) {
+            return values(p, predicate(p.override.predicate()));
+        }
+        // as read, which the declared type may refine for a generic getter
+        final Class<?> type = p.getter.handle() != null ? p.getter.handle().type().returnType() : null;
+        if (p.dispatch.kind == NodeKind.EQUALS && type != null && type.isPrimitive()) {
+            return values(p, type == boolean.class ? BOOLEANS
+                    : type == float.class || type == double.class ? DOUBLES
+                    : LONGS);
+        }
+        if (p.primitiveEquality != null) {
+            return predicate(p.primitiveEquality);
+        }
+        switch (p.dispatch.kind) {
+            case EQUALS:
+                return type != null ? values(p, equality(type)) : null;
+            case OVERRIDE:
+                return values(p, nullSafe(predicate(p.dispatch.override.predicate())));
+            default:
+                return null;
+        }
+    }
+
+    private static boolean same(final Object x, final Object y) {
+        return x == y;
+    }
+
+    // the handle held by a ConstantEquality of its own, else invoked as it is, which the JIT
+    // cannot inline into the caller
+    private static BiPredicate<Object, Object> spin(final MethodHandle equality) {
+        if (TEMPLATE != null) {
+            try {
+                return (BiPredicate<Object, Object>) new Loader(equality)
+                        .define(TEMPLATE)
+                        .getConstructor()
+                        .newInstance();
+            } catch (final ReflectiveOperationException | LinkageError ignored) {
+                // falls back to the handle
+            }
+        }
+        return (x, y) -> {
+            try {
+                return (boolean) equality.invokeExact(x, y);
+            } catch (final Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    // the class file of ConstantEquality, null if it cannot be read
+    private static byte[] template() {
+        try (InputStream in = FlatEquality.class.getResourceAsStream("ConstantEquality.class")) {
+            return in != null ? ByteStreams.toByteArray(in) : null;
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    // reads the property of both objects and compares the values
+    private static MethodHandle values(final Dispatch.Property p, final MethodHandle comparison) {
+        final MethodHandle getter = p.getter.handle();
+        if (getter == null) {
+            return null;
+        }
+        final MethodHandle read = getter.asType(methodType(comparison.type().parameterType(0), Object.class));
+        return filterArguments(comparison, 0, read, read).asType(TEST);
+    }
+
+    // equals called on the type, with an Object argument; null if the type is not
+    // accessible from here
+    private static MethodHandle virtual(final Class<?> type) {
+        try {
+            return LOOKUP.findVirtual(type, "equals", methodType(boolean.class, Object.class)).asType(TEST);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // defines a copy of ConstantEquality, which gets the handle from its class loader
+    private static final class Loader extends ClassLoader implements Supplier<MethodHandle> {
+        private final MethodHandle equality;
+
+        Loader(final MethodHandle equality) {
+            super(FlatEquality.class.getClassLoader());
+            this.equality = equality;
+        }
+
+        @Override
+        public MethodHandle get() {
+            return equality;
+        }
+
+        Class<?> define(final byte[] template) {
+            return defineClass(ConstantEquality.class.getName(), template, 0, template.length);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package deepequals;
+
+import java.lang.reflect.Type;
+
+// implemented by the class that deepequals-processor generates next to each @DeepEquatable
+// class, named after it: DeepEquals_Foo for Foo, DeepEquals_Outer_Inner for Outer.Inner.
+// The properties are those reflection would find, the public final fields first, each
+// identified by its index below. Not meant to be implemented by hand.
+public interface GeneratedAccessors {
+    // compares the idx-th property, which is primitive, of x and y like their boxes would
+    boolean equal(Object x, Object y, int idx);
+
+    Object get(Object x, int idx);
+
+    // the class has public methods that take arguments or return void: only typeLenient()
+    // tolerates them
+    boolean lenientOnly();
+
+    String[] names();
+
+    Type[] types();
+}
@@ -0,0 +1,131 @@
+package deepequals;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Type;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.ToDoubleFunction;
+
+// a property read through the accessors generated for a @DeepEquatable class: no
+// reflection over the class, no setAccessible, and calls the JIT can inline
+@SuppressWarnings("UnstableApiUsage")
+final class GeneratedGetter implements Getter {
+    private static final String PREFIX = "DeepEquals_";
+
+    private final GeneratedAccessors accessors;
+    private final int idx;
+    private final TypeToken typeToken;
+    private final String name;
+    private final TypeToken type;
+    private final BiPredicate<Object, Object> primitiveEquality;
+
+    private GeneratedGetter(final GeneratedAccessors accessors,
+                            final int idx,
+                            final TypeToken typeToken,
+                            final String name,
+                            final Type type) {
+        this.accessors = accessors;
+        this.idx = idx;
+        this.typeToken = typeToken;
+        this.name = name;
+        this.type = TypeToken.of(type);
+        this.primitiveEquality = this.type.isPrimitive()
+                ? (x, y) -> accessors.equal(x, y, idx)
+                : null;
+    }
+
+    @Override
+    public Class<?> declaringClass() {
+        return typeToken.getRawType();
+    }
+
+    // compared boxed under a tolerance
+    @Override
+    public ToDoubleFunction<Object> doubleValue() {
+        return null;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final GeneratedGetter that = (GeneratedGetter) o;
+        return idx == that.idx &&
+                typeToken.equals(that.typeToken);
+    }
+
+    @Override
+    public Object get(final Object x) {
+        return accessors.get(x, idx);
+    }
+
+    // read through the generated accessors only
+    @Override
+    public MethodHandle handle() {
+        return null;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idx, typeToken);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public BiPredicate<Object, Object> primitiveEquality() {
+        return primitiveEquality;
+    }
+
+    @Override
+    public TypeToken type() {
+        return type;
+    }
+
+    // null unless the type is a @DeepEquatable class whose accessors were generated and
+    // can stand for reflection: no method is ignored, as ignoring takes the Methods, and
+    // the class is fine as it is or the options are type lenient. Otherwise reflection
+    // decides, and raises the usual errors.
+    static Set<Getter> generatedGetters(final TypeToken tt, final Options options) {
+        final Class<?> c = tt.getRawType();
+        if (!c.isAnnotationPresent(DeepEquatable.class)
+                || c.getTypeParameters().length > 0
+                || !options.ignoredMethods.isEmpty()) {
+            return null;
+        }
+        final GeneratedAccessors accessors = accessors(c);
+        if (accessors == null || (accessors.lenientOnly() && !options.typeLenient)) {
+            return null;
+        }
+        final String[] names = accessors.names();
+        final Type[] types = accessors.types();
+        final ImmutableSet.Builder<Getter> result = ImmutableSet.builder();
+        for (int i = 0; i < names.length; i++) {
+            result.add(new GeneratedGetter(accessors, i, tt, names[i], types[i]));
+        }
+        return result.build();
+    }
+
+    private static GeneratedAccessors accessors(final Class<?> c) {
+        final String name = c.getName();
+        final int dot = name.lastIndexOf('.');
+        final String generated = name.substring(0, dot + 1)
+                + PREFIX
+                + name.substring(dot + 1).replace('$', '_');
+        try {
+            return (GeneratedAccessors) Class.forName(generated, true, c.getClassLoader())
+                    .getConstructor()
+                    .newInstance();
+        } catch (final ReflectiveOperationException | LinkageError | ClassCastException e) {
+            // not generated, e.g. the processor did not run
+            return null;
+        }
+    }
+}
@@ -2,10 +2,22 @@ package deepequals;
 
 import com.google.common.reflect.TypeToken;
 
+import java.lang.invoke.MethodHandle;
+import java.util.function.BiPredicate;
+import java.util.function.ToDoubleFunction;
+
 @SuppressWarnings("UnstableApiUsage")
 interface Getter {
     Class<?> declaringClass();
+    // reads a float or double property without boxing it, widened to double; null for
+    // the others or when it cannot be read that way
+    ToDoubleFunction<Object> doubleValue();
     Object get(Object x);
+    // reads the property of an object of the declaring class, typed as declared, for the
+    // compiled engine to compose; null when there is no such handle
+    MethodHandle handle();
     String name();
+    // compares the property of two objects without boxing it, null unless it is primitive
+    BiPredicate<Object, Object> primitiveEquality();
     TypeToken type();
 }
@@ -6,6 +6,7 @@ import com.google.common.reflect.TypeToken;
 import java.util.Set;
 
 import static deepequals.FieldBasedGetter.fieldBasedGetters;
+import static deepequals.GeneratedGetter.generatedGetters;
 import static deepequals.MethodBasedGetter.methodBasedGetters;
 
 @SuppressWarnings("UnstableApiUsage")
@@ -13,6 +14,10 @@ final class Getters {
     private Getters() {}
 
     static Set<Getter> getters(final TypeToken tt, final Options options) {
+        final Set<Getter> generated = generatedGetters(tt, options);
+        if (generated != null) {
+            return generated;
+        }
         return Sets.union(
                 fieldBasedGetters(tt),
                 methodBasedGetters(tt, options));
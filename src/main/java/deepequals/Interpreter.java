@@ -0,0 +1,699 @@
+package deepequals;
+
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+import static com.google.common.primitives.Ints.saturatedCast;
+import static deepequals.DeepEquals.compareSets;
+import static deepequals.LenientMatching.HASH_DEPTH;
+import static deepequals.PrimitiveArrays.asList;
+import static deepequals.PrimitiveArrays.mismatch;
+
+// immutable once built: all the state of a single comparison lives in a Context
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+final class Interpreter implements DeepEqualizer {
+    private final DispatchTable table;
+    private final boolean orderLenient;
+    private final boolean verbose;
+    private final boolean byIdentity;
+    private final Parallelism parallelism;
+    private final ComparisonListener listener;
+    private final boolean adaptive;
+    private final DeepHasher hasher;
+    private final DeepHasher bucketHasher;
+    private final Differ differ;
+
+    Interpreter(final Options options,
+                final Overrides overrides,
+                final boolean orderLenient,
+                final boolean verbose,
+                final boolean byIdentity,
+                final Parallelism parallelism,
+                final ComparisonListener listener) {
+        this.table = new DispatchTable(options, overrides, orderLenient);
+        this.orderLenient = orderLenient;
+        this.verbose = verbose;
+        this.byIdentity = byIdentity;
+        this.parallelism = parallelism;
+        this.listener = listener;
+        this.adaptive = options.ordering != null;
+        this.bucketHasher = DeepHasher.bounded(table, HASH_DEPTH);
+        // cyclic graphs may be equal without having the same shape: only a hash that
+        // stops at a fixed depth is consistent with that
+        this.hasher = byIdentity ? bucketHasher : DeepHasher.full(table);
+        this.differ = new Differ(table, byIdentity);
+    }
+
+    @Override
+    public <T> ComparisonResult check(final TypeToken<T> tt, final T x, final T y) {
+        final Dispatch d = table.get(tt);
+        // most objects checked are equal: they are compared as by deepEquals, which would
+        // print the path with verbose(), and only those that are not compared again to
+        // record where. The listener sees a single comparison, recorded.
+        if (listener == null && new Context(false).deepEqualsImpl(d, x, y)) {
+            return ComparisonResult.EQUAL;
+        }
+        final Context c = new Context(true);
+        return c.deepEqualsImpl(d, x, y) ? ComparisonResult.EQUAL : c.path.result();
+    }
+
+    @Override
+    public <T> Comparison<T> compare(final TypeToken<T> tt, final T x, final T y) {
+        return differ.compare(tt, x, y);
+    }
+
+    @Override
+    public <T> boolean deepEquals(final TypeToken<T> tt, final T x, final T y) {
+        return new Context().deepEquals(tt, x, y);
+    }
+
+    @Override
+    public <T> boolean deepEquals(final TypeToken<T> tt,
+                                  final Spliterator<T> x,
+                                  final Spliterator<T> y,
+                                  final int maxPending) {
+        return new Context().deepEquals(tt, x, y, maxPending);
+    }
+
+    @Override
+    public <T> int deepHashCode(final TypeToken<T> tt, final T x) {
+        return hasher.hash(tt, x);
+    }
+
+    @Override
+    public <T> int diff(final TypeToken<T> tt,
+                        final T x,
+                        final T y,
+                        final DiffSink sink,
+                        final int maxDifferences) {
+        return differ.diff(tt, x, y, sink, maxDifferences);
+    }
+
+    // the comparison of the idx-th element, entry or property in a context of its own
+    private interface Element {
+        boolean test(Interpreter.Context c, int idx);
+    }
+
+    private final class Context {
+        private final CycleDetector cycleDetector;
+        private final FailurePath path;
+        private final VisitedPairs visited;
+        // the order of the properties of each type as first seen by the comparison, shared
+        // with its subtasks, if adaptive: see Dispatch.properties(Map)
+        private final Map<Dispatch, Dispatch.Property[]> orders;
+        // only kept up to date for the listener
+        private int depth;
+        private boolean mismatchReported;
+
+        Context() {
+            this(verbose);
+        }
+
+        // keeps the path to the first mismatch, and the values there, if recorded
+        Context(final boolean recorded) {
+            this.cycleDetector = new CycleDetector();
+            this.path = recorded ? new FailurePath() : null;
+            this.visited = byIdentity ? new VisitedPairs() : null;
+            this.orders = !adaptive ? null : parallelism != null ? new ConcurrentHashMap<>() : new HashMap<>();
+        }
+
+        // a context for a subtask: it starts where the parent is
+        private Context(final Context parent) {
+            this.cycleDetector = parent.cycleDetector.copy();
+            this.path = parent.path != null ? new FailurePath() : null;
+            this.visited = parent.visited != null ? parent.visited.fork() : null;
+            this.orders = parent.orders;
+            this.depth = parent.depth;
+        }
+
+        boolean deepEquals(final TypeToken tt, final Object x, final Object y) {
+            boolean result = false;
+            try {
+                result = deepEqualsImpl(table.get(tt), x, y);
+            } finally {
+                if (verbose && !result) {
+                    System.err.println(path);
+                }
+            }
+            return result;
+        }
+
+        boolean deepEquals(final TypeToken tt,
+                           final Spliterator<?> x,
+                           final Spliterator<?> y,
+                           final int maxPending) {
+            final Dispatch element = table.get(tt);
+            boolean result = false;
+            try {
+                result = orderLenient
+                        ? StreamMatching.lenient(x,
+                                                 y,
+                                                 maxPending,
+                                                 e -> bucketHasher.hash(tt, e),
+                                                 lenientEquality(element))
+                        : compareSpliterators(element, x, y);
+            } finally {
+                if (verbose && !result) {
+                    System.err.println(path);
+                }
+            }
+            return result;
+        }
+
+        private boolean compareArrays(final Dispatch d, final Object x, final Object y) {
+            if (d.bulk) {
+                final int idx = mismatch(x, y);
+                if (idx >= 0) {
+                    if (path != null) {
+                        path.element(idx, asList(x), asList(y));
+                    }
+                    return false;
+                }
+                return true;
+            }
+            if (!orderLenient && x instanceof Object[]) {
+                return compareSequencesOfStrict(d.elementDispatch, (Object[]) x, (Object[]) y);
+            }
+            return compareSequencesOf(d.elementDispatch, asList(x), asList(y));
+        }
+
+        private boolean compareCollections(final Dispatch d, final Object x, final Object y) {
+            final Collection<?> colx = (Collection<?>) x;
+            final Collection<?> coly = (Collection<?>) y;
+            if (orderLenient) {
+                return compareSequencesOfLenient(d.elementDispatch,
+                                                 Arrays.asList(colx.toArray()),
+                                                 Arrays.asList(coly.toArray()));
+            }
+            // the index of the mismatch is only known by walking up to it
+            if (path == null && colx.size() != coly.size()) {
+                return false;
+            }
+            return compareInLockstep(d.elementDispatch, colx, coly);
+        }
+
+        private boolean compareDeep(final Dispatch d, final Object x, final Object y) {
+            final Dispatch.Property[] properties = d.properties(orders);
+            if (parallel(properties.length)) {
+                return matchInParallel(properties.length,
+                                       (c, i) -> c.compareProperty(d, properties[i], x, y));
+            }
+            for (final Dispatch.Property p : properties) {
+                if (!compareProperty(d, p, x, y)) {
+                    if (adaptive) {
+                        d.observe(p);
+                    }
+                    return false;
+                }
+            }
+            if (adaptive) {
+                d.observe(null);
+            }
+            return true;
+        }
+
+        private boolean compareElement(final Dispatch element,
+                                       final Object x,
+                                       final Object y,
+                                       final int idx) {
+            boolean equals = false;
+            try {
+                equals = deepEqualsImpl(element, x, y);
+            } finally {
+                if (!equals) {
+                    failedAt(idx);
+                }
+            }
+            return equals;
+        }
+
+        // walks both sides at once, without copying them, up to the first mismatch.
+        // Lists with random access are walked by index, which takes no iterators.
+        private boolean compareInLockstep(final Dispatch element,
+                                          final Iterable<?> x,
+                                          final Iterable<?> y) {
+            if (x instanceof RandomAccess && x instanceof List
+                    && y instanceof RandomAccess && y instanceof List) {
+                return compareSequencesOfStrict(element, (List) x, (List) y);
+            }
+            final Iterator<?> itx = x.iterator();
+            final Iterator<?> ity = y.iterator();
+            int idx = 0;
+            while (itx.hasNext() && ity.hasNext()) {
+                if (!compareElement(element, itx.next(), ity.next(), idx++)) {
+                    return false;
+                }
+            }
+            if (itx.hasNext() || ity.hasNext()) {
+                if (path != null) {
+                    path.index(idx);
+                    if (itx.hasNext()) {
+                        path.values(itx.next(), null, DiffSink.Reason.ONLY_LEFT);
+                    } else {
+                        path.values(null, ity.next(), DiffSink.Reason.ONLY_RIGHT);
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        private boolean compareIterables(final Dispatch d, final Object x, final Object y) {
+            return orderLenient
+                    ? compareSequencesOfLenient(d.elementDispatch,
+                                                Lists.newArrayList((Iterable<?>) x),
+                                                Lists.newArrayList((Iterable<?>) y))
+                    : compareInLockstep(d.elementDispatch, (Iterable<?>) x, (Iterable<?>) y);
+        }
+
+        private boolean compareLists(final Dispatch d, final Object x, final Object y) {
+            return compareSequencesOf(d.elementDispatch, (List<?>) x, (List<?>) y);
+        }
+
+        private boolean compareMaps(final Dispatch d, final Object x, final Object y) {
+            final Map<?, ?> mapx = (Map<?, ?>) x;
+            final Map<?, ?> mapy = (Map<?, ?>) y;
+            // the key of the mismatch is only known by looking for it
+            if (path == null && mapx.size() != mapy.size()) {
+                return false;
+            }
+            if (parallel(mapx.size())) {
+                final Map.Entry[] entries = mapx.entrySet().toArray(new Map.Entry[0]);
+                if (!matchInParallel(entries.length,
+                                     (c, i) -> c.compareValues(d.elementDispatch, entries[i], mapy))) {
+                    return false;
+                }
+            } else {
+                for (final Map.Entry<?, ?> e : mapx.entrySet()) {
+                    if (!compareValues(d.elementDispatch, e, mapy)) {
+                        return false;
+                    }
+                }
+            }
+            if (mapx.size() != mapy.size()) {
+                // all the keys of x are in y: y has more
+                for (final Map.Entry<?, ?> e : mapy.entrySet()) {
+                    if (!mapx.containsKey(e.getKey())) {
+                        path.key(e.getKey());
+                        path.values(null, e.getValue(), DiffSink.Reason.ONLY_RIGHT);
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean compareNode(final Dispatch d,
+                                    final Object x,
+                                    final Object y) {
+            if ((x == null && y != null) || (x != null && y == null)) {
+                return unequal(x, y);
+            }
+            if (x == y) {
+                return true;
+            }
+            switch (d.kind) {
+                case OVERRIDE:
+                    if (listener != null) {
+                        listener.override(d.typeToken);
+                    }
+                    return d.override.predicate().test(x, y) || unequal(x, y);
+                case EQUALS:
+                    return x.equals(y) || unequal(x, y);
+                default:
+                    break;
+            }
+            if (visited == null) {
+                return compareStructurally(d, x, y) || unequal(x, y);
+            }
+            // pairs proven equal already, or being compared further up, are not compared again
+            final VisitedPairs.Pair pair = visited.enter(d.typeToken, x, y);
+            if (pair == null) {
+                if (listener != null && visited.inProgress(d.typeToken, x, y)) {
+                    listener.cycle(d.typeToken);
+                }
+                return true;
+            }
+            boolean equals = false;
+            try {
+                equals = compareStructurally(d, x, y);
+            } finally {
+                visited.exit(pair, equals);
+            }
+            return equals || unequal(x, y);
+        }
+
+        private boolean compareOptionals(final Dispatch d, final Object x, final Object y) {
+            final Optional<?> optx = (Optional<?>) x;
+            final Optional<?> opty = (Optional<?>) y;
+
+            return (!optx.isPresent() && !opty.isPresent())
+                    || (optx.isPresent() && opty.isPresent()
+                    && deepEqualsImpl(d.elementDispatch, optx.get(), opty.get()));
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean compareProperty(final Dispatch d,
+                                        final Dispatch.Property p,
+                                        final Object x,
+                                        final Object y) {
+            final Getter getter = p.getter;
+            // primitives are not boxed unless the listener is to see them. They cannot
+            // close a cycle either.
+            final boolean unboxed = p.primitiveEquality != null && listener == null;
+            final boolean detectCycles = visited == null && !unboxed;
+            if (detectCycles) {
+                cycleDetector.add(getter);
+                final Cycle c = cycleDetector.cycle();
+                if (c != null) {
+                    if (listener != null) {
+                        listener.cycle(getter.type());
+                    }
+                    throw new CycleException(c.toString());
+                }
+            }
+
+            // the finally block records the getter on mismatches and exceptions alike
+            boolean equals = false;
+            try {
+                if (unboxed) {
+                    equals = p.primitiveEquality.test(x, y) || unequal(getter.get(x), getter.get(y));
+                } else if (p.override == null) {
+                    equals = deepEqualsImpl(p.dispatch, getter.get(x), getter.get(y));
+                } else {
+                    if (listener != null) {
+                        listener.override(d.typeToken, getter.name());
+                    }
+                    final Object xfield = getter.get(x);
+                    final Object yfield = getter.get(y);
+                    equals = p.override.predicate().test(xfield, yfield) || unequal(xfield, yfield);
+                }
+            } finally {
+                if (!equals && path != null) {
+                    path.getter(getter);
+                }
+            }
+            if (detectCycles) {
+                cycleDetector.remove();
+            }
+            return equals;
+        }
+
+        private boolean compareSequencesOf(
+                final Dispatch element, final List x, final List y) {
+            return orderLenient
+                    ? compareSequencesOfLenient(element, x, y)
+                    : compareSequencesOfStrict(element, x, y);
+        }
+
+        private boolean compareSequencesOfLenient(
+                final Dispatch element, final List x, final List y) {
+            return LenientMatching.matches(
+                    x,
+                    y,
+                    e -> bucketHasher.hash(element.typeToken, e),
+                    lenientEquality(element));
+        }
+
+        private boolean compareSequencesOfStrict(final Dispatch element,
+                                                 final List x, final List y) {
+            final int xSize = x.size();
+            final int ySize = y.size();
+            final int size = Math.min(xSize, ySize);
+            if (parallel(size)) {
+                if (!matchInParallel(size,
+                                     (c, i) -> c.compareElement(element, x.get(i), y.get(i), i))) {
+                    return false;
+                }
+            } else {
+                for (int idx = 0; idx < size; idx++) {
+                    if (!compareElement(element, x.get(idx), y.get(idx), idx)) {
+                        return false;
+                    }
+                }
+            }
+            if (xSize != ySize) {
+                if (path != null) {
+                    path.element(size, x, y);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        // same as above without wrapping the arrays in lists
+        private boolean compareSequencesOfStrict(final Dispatch element,
+                                                 final Object[] x, final Object[] y) {
+            final int size = Math.min(x.length, y.length);
+            if (parallel(size)) {
+                if (!matchInParallel(size,
+                                     (c, i) -> c.compareElement(element, x[i], y[i], i))) {
+                    return false;
+                }
+            } else {
+                for (int idx = 0; idx < size; idx++) {
+                    if (!compareElement(element, x[idx], y[idx], idx)) {
+                        return false;
+                    }
+                }
+            }
+            if (x.length != y.length) {
+                if (path != null) {
+                    path.element(size, Arrays.asList(x), Arrays.asList(y));
+                }
+                return false;
+            }
+            return true;
+        }
+
+        // chunks large enough to be compared in parallel when the size of both sides is
+        // known, so that the elements to share out are all there
+        private boolean compareSpliterators(final Dispatch element,
+                                            final Spliterator<?> x,
+                                            final Spliterator<?> y) {
+            final boolean forked = StreamMatching.sized(x, y) && parallel(saturatedCast(x.estimateSize()));
+            final int chunkSize = forked
+                    ? saturatedCast(Math.min((long) parallelism.threshold * parallelism.pool.getParallelism(),
+                                             x.estimateSize()))
+                    : StreamMatching.CHUNK;
+            return StreamMatching.strict(
+                    x,
+                    y,
+                    chunkSize,
+                    (xs, ys, size, offset) -> {
+                        if (forked && parallel(size)) {
+                            return matchInParallel(
+                                    size,
+                                    (c, i) -> c.compareElement(element, xs[i], ys[i], saturatedCast(offset + i)));
+                        }
+                        for (int i = 0; i < size; i++) {
+                            if (!compareElement(element, xs[i], ys[i], saturatedCast(offset + i))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    },
+                    end -> failedAt(saturatedCast(end)));
+        }
+
+        private boolean compareStructurally(final Dispatch d,
+                                            final Object x,
+                                            final Object y) {
+            switch (d.kind) {
+                case ARRAY:
+                    return compareArrays(d, x, y);
+                case OPTIONAL:
+                    return compareOptionals(d, x, y);
+                case SET:
+                    return compareSets(x, y);
+                case MAP:
+                    return compareMaps(d, x, y);
+                case LIST:
+                    return compareLists(d, x, y);
+                case COLLECTION:
+                    return compareCollections(d, x, y);
+                case ITERABLE:
+                    return compareIterables(d, x, y);
+                default:
+                    return compareDeep(d, x, y);
+            }
+        }
+
+        private boolean compareValues(final Dispatch value,
+                                      final Map.Entry<?, ?> e,
+                                      final Map<?, ?> y) {
+            if (!y.containsKey(e.getKey())) {
+                if (path != null) {
+                    path.key(e.getKey());
+                    path.values(e.getValue(), null, DiffSink.Reason.ONLY_LEFT);
+                }
+                return false;
+            }
+            final boolean equals = deepEqualsImpl(value, e.getValue(), y.get(e.getKey()));
+            if (!equals && path != null) {
+                path.key(e.getKey());
+            }
+            return equals;
+        }
+
+        private boolean deepEqualsImpl(final Dispatch d,
+                                       final Object x,
+                                       final Object y) {
+            final TypeToken tt = d.typeToken;
+            if (listener == null) {
+                return compareNode(d, x, y);
+            }
+            listener.enter(tt, x, y, depth++);
+            mismatchReported = false;
+            final boolean equals = compareNode(d, x, y);
+            depth--;
+            // the first node to exit unequal since the last one entered is where the
+            // difference is
+            if (!equals && !mismatchReported) {
+                mismatchReported = true;
+                listener.mismatch(tt, x, y);
+            }
+            listener.exit(tt, equals, depth);
+            return equals;
+        }
+
+        private void failedAt(final int idx) {
+            if (path != null) {
+                path.index(idx);
+            }
+        }
+
+        // a failed attempt to match is not a mismatch of the sequences
+        private BiPredicate<Object, Object> lenientEquality(final Dispatch element) {
+            return (e1, e2) -> {
+                final int mark = visited != null ? visited.mark() : 0;
+                final boolean equals = deepEqualsImpl(element, e1, e2);
+                if (!equals && path != null) {
+                    path.clear();
+                }
+                if (!equals && visited != null) {
+                    visited.rollback(mark);
+                }
+                return equals;
+            };
+        }
+
+        // the subtasks race to the first mismatch: each one stops as soon as a mismatch
+        // is found before its next element. The mismatch with the lowest index wins, which
+        // is the one the sequential comparison finds.
+        private boolean matchInParallel(final int size, final Element element) {
+            final Race race = new Race();
+            parallelism.invoke(new Split(this, race, element, 0, size));
+            return race.result(path);
+        }
+
+        private boolean parallel(final int size) {
+            return parallelism != null && size >= parallelism.threshold;
+        }
+
+        // records the values that differ, if the path is kept; always false, for the
+        // callers to return
+        private boolean unequal(final Object x, final Object y) {
+            if (path != null) {
+                path.values(x, y, DiffSink.Reason.NOT_EQUAL);
+            }
+            return false;
+        }
+    }
+
+    private static final class Race {
+        private final AtomicInteger first = new AtomicInteger(Integer.MAX_VALUE);
+        private FailurePath path;
+        private Throwable thrown;
+
+        boolean lost(final int idx) {
+            return first.get() < idx;
+        }
+
+        synchronized void mismatch(final int idx, final FailurePath path, final Throwable thrown) {
+            if (idx < first.get()) {
+                first.set(idx);
+                this.path = path;
+                this.thrown = thrown;
+            }
+        }
+
+        // adds the path to the first mismatch, if any, to the given one
+        synchronized boolean result(final FailurePath into) {
+            if (first.get() == Integer.MAX_VALUE) {
+                return true;
+            }
+            if (into != null) {
+                into.prepend(path);
+            }
+            if (thrown instanceof RuntimeException) {
+                throw (RuntimeException) thrown;
+            }
+            if (thrown instanceof Error) {
+                throw (Error) thrown;
+            }
+            return false;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class Split extends RecursiveAction {
+        private final Context parent;
+        private final Race race;
+        private final Element element;
+        private final int from;
+        private final int to;
+
+        Split(final Context parent,
+              final Race race,
+              final Element element,
+              final int from,
+              final int to) {
+            this.parent = parent;
+            this.race = race;
+            this.element = element;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (race.lost(from)) {
+                return;
+            }
+            if (to - from > parallelism.threshold) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new Split(parent, race, element, from, mid),
+                          new Split(parent, race, element, mid, to));
+                return;
+            }
+            final Context c = new Context(parent);
+            for (int idx = from; idx < to && !race.lost(idx); idx++) {
+                try {
+                    if (!element.test(c, idx)) {
+                        race.mismatch(idx, c.path, null);
+                        return;
+                    }
+                } catch (final RuntimeException | Error e) {
+                    race.mismatch(idx, c.path, e);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package deepequals;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.IntPredicate;
+import java.util.function.ToIntFunction;
+
+// order-lenient matching of two sequences. The elements of y are bucketed by a hash
+// that agrees with the element equality, so that each element of x is only compared
+// against the elements of y with the same hash.
+final class LenientMatching {
+    // deep enough to tell most elements apart, shallow enough to stay cheap
+    static final int HASH_DEPTH = 4;
+
+    private LenientMatching() {}
+
+    static boolean matches(final List<?> x,
+                           final List<?> y,
+                           final ToIntFunction<Object> hash,
+                           final BiPredicate<Object, Object> equal) {
+        final int size = x.size();
+        if (size != y.size()) {
+            return false;
+        }
+        final long[] buckets = buckets(y, hash);
+        final BitSet matched = new BitSet(size);
+        for (final Object e : x) {
+            if (!match(e, y, buckets, matched, hash, equal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // matches what it can, then passes the index of every element of x left without a
+    // match, then that of every element of y left over, for as long as they return true
+    static void unmatched(final List<?> x,
+                          final List<?> y,
+                          final ToIntFunction<Object> hash,
+                          final BiPredicate<Object, Object> equal,
+                          final IntPredicate onlyInX,
+                          final IntPredicate onlyInY) {
+        final long[] buckets = buckets(y, hash);
+        final BitSet matched = new BitSet(buckets.length);
+        for (int i = 0; i < x.size(); i++) {
+            if (!match(x.get(i), y, buckets, matched, hash, equal) && !onlyInX.test(i)) {
+                return;
+            }
+        }
+        // by index rather than by bucket
+        final BitSet left = new BitSet(buckets.length);
+        for (int pos = matched.nextClearBit(0); pos < buckets.length; pos = matched.nextClearBit(pos + 1)) {
+            left.set((int) buckets[pos]);
+        }
+        for (int idx = left.nextSetBit(0); idx >= 0; idx = left.nextSetBit(idx + 1)) {
+            if (!onlyInY.test(idx)) {
+                return;
+            }
+        }
+    }
+
+    // hash in the high bits, index into y in the low bits: once sorted, the
+    // elements of a bucket are adjacent and in their original order
+    private static long[] buckets(final List<?> y, final ToIntFunction<Object> hash) {
+        final long[] result = new long[y.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = key(hash.applyAsInt(y.get(i))) | i;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int firstOf(final long[] buckets, final long key) {
+        final int idx = Arrays.binarySearch(buckets, key);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    private static long key(final int hash) {
+        return (long) hash << 32;
+    }
+
+    // looks for an element of y, not matched yet, equal to e, and marks it as matched
+    private static boolean match(final Object e,
+                                 final List<?> y,
+                                 final long[] buckets,
+                                 final BitSet matched,
+                                 final ToIntFunction<Object> hash,
+                                 final BiPredicate<Object, Object> equal) {
+        final long key = key(hash.applyAsInt(e));
+        int pos = matched.nextClearBit(firstOf(buckets, key));
+        while (pos < buckets.length && (buckets[pos] & 0xffffffff00000000L) == key) {
+            if (equal.test(e, y.get((int) buckets[pos]))) {
+                matched.set(pos);
+                return true;
+            }
+            pos = matched.nextClearBit(pos + 1);
+        }
+        return false;
+    }
+}
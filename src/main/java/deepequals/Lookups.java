@@ -0,0 +1,28 @@
+package deepequals;
+
+import java.lang.invoke.MethodHandles;
+
+import static java.lang.reflect.Modifier.isPublic;
+
+// the lookup to spin accessors for the methods of a class with: this package's own when
+// the class is public and loaded by a loader this package sees, none otherwise. From
+// Java 9 on a lookup with private access to the class reaches the others too: see the
+// overlay in META-INF/versions/11.
+final class Lookups {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private Lookups() {}
+
+    // null when no accessor can be spun for the class
+    static MethodHandles.Lookup in(final Class<?> c) {
+        return isPublic(c.getModifiers()) && isVisible(c) ? LOOKUP : null;
+    }
+
+    private static boolean isVisible(final Class<?> c) {
+        try {
+            return Class.forName(c.getName(), false, Lookups.class.getClassLoader()) == c;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
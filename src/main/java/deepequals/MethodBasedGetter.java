@@ -3,13 +3,16 @@ package deepequals;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
-import static com.google.common.base.Throwables.propagate;
 import static java.lang.String.format;
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toSet;
@@ -26,10 +29,20 @@ final class MethodBasedGetter implements Getter {
 
     private final Method method;
     private final TypeToken typeToken;
+    private final TypeToken type;
+    private final Function<Object, Object> accessor;
+    private final BiPredicate<Object, Object> primitiveEquality;
+    private final ToDoubleFunction<Object> doubleValue;
+    private final MethodHandle handle;
 
     private MethodBasedGetter(final Method method, final TypeToken typeToken) {
         this.method = method;
         this.typeToken = typeToken;
+        this.accessor = Accessors.accessor(method);
+        this.primitiveEquality = Accessors.primitiveEquality(method);
+        this.doubleValue = Accessors.doubleValue(method);
+        this.handle = Accessors.unreflected(method);
+        this.type = typeToken.resolveType(method.getGenericReturnType());
     }
 
     @Override
@@ -37,6 +50,11 @@ final class MethodBasedGetter implements Getter {
         return method.getDeclaringClass();
     }
 
+    @Override
+    public ToDoubleFunction<Object> doubleValue() {
+        return doubleValue;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -48,11 +66,12 @@ final class MethodBasedGetter implements Getter {
 
     @Override
     public Object get(final Object x) {
-        try {
-            return method.invoke(x);
-        } catch (final Throwable e) {
-            throw propagate(e);
-        }
+        return accessor.apply(x);
+    }
+
+    @Override
+    public MethodHandle handle() {
+        return handle;
     }
 
     @Override
@@ -65,17 +84,22 @@ final class MethodBasedGetter implements Getter {
         return method.getName();
     }
 
+    @Override
+    public BiPredicate<Object, Object> primitiveEquality() {
+        return primitiveEquality;
+    }
+
     @Override
     public TypeToken type() {
-        return typeToken.resolveType(method.getGenericReturnType());
+        return type;
     }
 
     static Set<Getter> methodBasedGetters(final TypeToken tt, final Options options) {
-        final Set<MethodBasedGetter> result = methodsToInvoke(tt, options).stream()
-                .map(m -> new MethodBasedGetter(m, tt))
-                .collect(toSet());
-        result.forEach(m -> m.method.setAccessible(true));
-        return ImmutableSet.copyOf(result);
+        final Set<Method> methods = methodsToInvoke(tt, options);
+        methods.forEach(m -> m.setAccessible(true));
+        return ImmutableSet.copyOf(methods.stream()
+                                           .map(m -> new MethodBasedGetter(m, tt))
+                                           .collect(toSet()));
     }
 
     private static void enforceNoMethodsReturningVoid(
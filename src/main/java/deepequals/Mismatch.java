@@ -0,0 +1,130 @@
+package deepequals;
+
+import java.util.Arrays;
+
+// the index of the first mismatching element of two arrays, the length of the shorter
+// array when one is a prefix of the other, or -1 when the arrays are equal. Elements
+// compare like their boxes. From Java 9 on Arrays.mismatch does the same, vectorized:
+// see the overlay in META-INF/versions/11.
+final class Mismatch {
+    private Mismatch() {}
+
+    static int mismatch(final boolean[] x, final boolean[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            if (x[i] != y[i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static int mismatch(final byte[] x, final byte[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            if (x[i] != y[i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static int mismatch(final char[] x, final char[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            if (x[i] != y[i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static int mismatch(final double[] x, final double[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            if (Double.doubleToLongBits(x[i]) != Double.doubleToLongBits(y[i])) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static int mismatch(final float[] x, final float[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            if (Float.floatToIntBits(x[i]) != Float.floatToIntBits(y[i])) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static int mismatch(final int[] x, final int[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            if (x[i] != y[i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static int mismatch(final long[] x, final long[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            if (x[i] != y[i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static int mismatch(final Object[] x, final Object[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            final Object a = x[i];
+            final Object b = y[i];
+            if (a == null ? b != null : !a.equals(b)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static int mismatch(final short[] x, final short[] y) {
+        if (Arrays.equals(x, y)) {
+            return -1;
+        }
+        final int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            if (x[i] != y[i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+}
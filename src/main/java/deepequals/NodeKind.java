@@ -0,0 +1,48 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static deepequals.DeepEquals.comparing;
+
+// how the values of a type are compared, in order of precedence
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+enum NodeKind {
+    OVERRIDE, EQUALS, ARRAY, OPTIONAL, SET, MAP, LIST, COLLECTION, ITERABLE, DEEP;
+
+    static NodeKind of(final TypeToken tt, final Overrides overrides) {
+        if (overrides.forType(tt) != null) {
+            return OVERRIDE;
+        }
+        if (overrides.comparedWithEquals(tt)) {
+            return EQUALS;
+        }
+        if (tt.isArray()) {
+            return ARRAY;
+        }
+        if (comparing(tt, Optional.class)) {
+            return OPTIONAL;
+        }
+        if (comparing(tt, Set.class)) {
+            return SET;
+        }
+        if (comparing(tt, Map.class)) {
+            return MAP;
+        }
+        if (comparing(tt, List.class)) {
+            return LIST;
+        }
+        if (comparing(tt, Collection.class)) {
+            return COLLECTION;
+        }
+        if (comparing(tt, Iterable.class)) {
+            return ITERABLE;
+        }
+        return DEEP;
+    }
+}
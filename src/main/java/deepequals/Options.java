@@ -1,5 +1,6 @@
 package deepequals;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
 
 import java.lang.reflect.Method;
@@ -8,12 +9,32 @@ import java.util.function.BiPredicate;
 
 @SuppressWarnings("UnstableApiUsage")
 final class Options {
+    static final Options DEFAULT = new Options(false, ImmutableSet.of(), null);
+
     final boolean typeLenient;
     final Set<BiPredicate<TypeToken, Method>> ignoredMethods;
+    // null unless the getters are to be ordered adaptively
+    final AdaptiveOrdering ordering;
+    private final TypePlans plans;
 
     Options(final boolean typeLenient,
-            final Set<BiPredicate<TypeToken, Method>> ignoredMethods) {
+            final Set<BiPredicate<TypeToken, Method>> ignoredMethods,
+            final AdaptiveOrdering ordering) {
         this.typeLenient = typeLenient;
-        this.ignoredMethods = ignoredMethods;
+        this.ignoredMethods = ImmutableSet.copyOf(ignoredMethods);
+        this.ordering = ordering;
+        this.plans = new TypePlans(this);
+    }
+
+    static Options of(final boolean typeLenient,
+                      final Set<BiPredicate<TypeToken, Method>> ignoredMethods,
+                      final AdaptiveOrdering ordering) {
+        return !typeLenient && ignoredMethods.isEmpty() && ordering == null
+                ? DEFAULT
+                : new Options(typeLenient, ignoredMethods, ordering);
+    }
+
+    TypePlan plan(final TypeToken tt) {
+        return plans.plan(tt);
     }
 }
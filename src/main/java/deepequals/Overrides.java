@@ -0,0 +1,84 @@
+package deepequals;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+import deepequals.DeepEquals.Field;
+import deepequals.comparator.Comparator;
+import deepequals.comparator.TypeTokenMatcherComparator;
+
+import java.util.List;
+import java.util.Map;
+
+import static deepequals.DeepEquals.field;
+
+@SuppressWarnings("UnstableApiUsage")
+final class Overrides {
+    static final Overrides NONE = new Overrides(
+            ImmutableMap.of(), ImmutableList.of(), ImmutableMap.of(), null, ValueTypes.defaults());
+
+    private final Map<TypeToken, Comparator> typeTokenComparators;
+    private final List<TypeTokenMatcherComparator> typeTokenMatcherComparators;
+    private final Map<Field, Comparator> fieldComparators;
+    // null unless floating point values are compared with a tolerance
+    final Tolerance tolerance;
+    private final ValueTypes valueTypes;
+
+    private Overrides(final Map<TypeToken, Comparator> typeTokenComparators,
+                      final List<TypeTokenMatcherComparator> typeTokenMatcherComparators,
+                      final Map<Field, Comparator> fieldComparators,
+                      final Tolerance tolerance,
+                      final ValueTypes valueTypes) {
+        this.typeTokenComparators = typeTokenComparators;
+        this.typeTokenMatcherComparators = typeTokenMatcherComparators;
+        this.fieldComparators = fieldComparators;
+        this.tolerance = tolerance;
+        this.valueTypes = valueTypes;
+    }
+
+    static Overrides of(final Map<TypeToken, Comparator> typeTokenComparators,
+                        final List<TypeTokenMatcherComparator> typeTokenMatcherComparators,
+                        final Map<Field, Comparator> fieldComparators,
+                        final Tolerance tolerance,
+                        final ValueTypes valueTypes) {
+        return typeTokenComparators.isEmpty()
+                && typeTokenMatcherComparators.isEmpty()
+                && fieldComparators.isEmpty()
+                && tolerance == null
+                && valueTypes == ValueTypes.defaults()
+                ? NONE
+                : new Overrides(ImmutableMap.copyOf(typeTokenComparators),
+                                ImmutableList.copyOf(typeTokenMatcherComparators),
+                                ImmutableMap.copyOf(fieldComparators),
+                                tolerance,
+                                valueTypes);
+    }
+
+    // a value type compared with equals
+    boolean comparedWithEquals(final TypeToken tt) {
+        return valueTypes.comparedWithEquals(tt);
+    }
+
+    // null when the field is not overridden
+    Comparator forField(final TypeToken tt, final String fieldName) {
+        return fieldComparators.isEmpty()
+                ? null
+                : fieldComparators.get(field(tt, fieldName));
+    }
+
+    // null when the type is not overridden. Matchers take precedence over
+    // comparators for a specific type token; the last matcher added wins. Then come the
+    // tolerance, and value types compared with compareTo.
+    Comparator forType(final TypeToken tt) {
+        for (final TypeTokenMatcherComparator c : typeTokenMatcherComparators) {
+            if (c.matches(tt)) {
+                return c;
+            }
+        }
+        Comparator result = typeTokenComparators.get(tt);
+        if (result == null && tolerance != null) {
+            result = tolerance.comparator(tt);
+        }
+        return result != null ? result : valueTypes.comparator(tt);
+    }
+}
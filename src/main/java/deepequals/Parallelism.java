@@ -0,0 +1,29 @@
+package deepequals;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// where and from which size on sequences, maps and objects are compared in parallel
+final class Parallelism {
+    static final int DEFAULT_THRESHOLD = 1 << 13;
+
+    final ForkJoinPool pool;
+    final int threshold;
+
+    Parallelism(final ForkJoinPool pool, final int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("the threshold must be positive");
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    // subtasks of a task already running in the pool join it directly
+    void invoke(final ForkJoinTask<?> task) {
+        if (ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package deepequals;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// bulk comparison of arrays whose elements are compared with equals: the eight
+// primitive array types and arrays of boxed primitives, String and the like.
+// Floating point elements follow Double.equals/Float.equals, i.e. NaN equals NaN
+// and 0.0 does not equal -0.0, just like their boxed counterparts.
+final class PrimitiveArrays {
+    private PrimitiveArrays() {}
+
+    static List<Object> asList(final Object array) {
+        return array instanceof Object[]
+                ? Arrays.asList((Object[]) array)
+                : new Boxed(array);
+    }
+
+    // the index of the first mismatching element, the length of the shorter array
+    // when one is a prefix of the other, or -1 when the arrays are equal
+    static int mismatch(final Object x, final Object y) {
+        if (x instanceof Object[]) {
+            return Mismatch.mismatch((Object[]) x, (Object[]) y);
+        }
+        if (x instanceof int[]) {
+            return Mismatch.mismatch((int[]) x, (int[]) y);
+        }
+        if (x instanceof long[]) {
+            return Mismatch.mismatch((long[]) x, (long[]) y);
+        }
+        if (x instanceof double[]) {
+            return Mismatch.mismatch((double[]) x, (double[]) y);
+        }
+        if (x instanceof byte[]) {
+            return Mismatch.mismatch((byte[]) x, (byte[]) y);
+        }
+        if (x instanceof float[]) {
+            return Mismatch.mismatch((float[]) x, (float[]) y);
+        }
+        if (x instanceof char[]) {
+            return Mismatch.mismatch((char[]) x, (char[]) y);
+        }
+        if (x instanceof short[]) {
+            return Mismatch.mismatch((short[]) x, (short[]) y);
+        }
+        return Mismatch.mismatch((boolean[]) x, (boolean[]) y);
+    }
+
+    // a read-only view on a primitive array, boxing elements on access
+    private static final class Boxed extends AbstractList<Object> implements RandomAccess {
+        private final Object array;
+        private final int size;
+
+        Boxed(final Object array) {
+            this.array = array;
+            this.size = Array.getLength(array);
+        }
+
+        @Override
+        public Object get(final int index) {
+            return Array.get(array, index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package deepequals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.ToIntFunction;
+
+// the comparison of two spliterators, consumed as they go: neither side is ever held in
+// full. In strict order both sides are read a chunk at a time and the chunks compared
+// pair by pair. In lenient order the elements of either side that found no match yet
+// wait in a multiset bucketed by a hash that agrees with the element equality, until
+// an element of the other side matches them.
+final class StreamMatching {
+    // the elements read from each side at once, unless compared in parallel
+    static final int CHUNK = 1 << 10;
+    // the elements of a side left without a match that lenient order holds at most
+    static final int MAX_PENDING = 1 << 16;
+
+    private StreamMatching() {}
+
+    // compares the elements of a chunk: offset is the index of the first one
+    interface Chunk {
+        boolean test(Object[] x, Object[] y, int size, long offset);
+    }
+
+    // the chunks are of chunkSize elements but the last one. Passes the index at which the
+    // shorter side ended to ended, when they are not the same size
+    static boolean strict(final Spliterator<?> x,
+                          final Spliterator<?> y,
+                          final int chunkSize,
+                          final Chunk chunk,
+                          final LongConsumer ended) {
+        final long xSize = x.getExactSizeIfKnown();
+        final long ySize = y.getExactSizeIfKnown();
+        if (xSize >= 0 && ySize >= 0 && xSize != ySize) {
+            ended.accept(Math.min(xSize, ySize));
+            return false;
+        }
+        final Buffer xs = new Buffer(chunkSize);
+        final Buffer ys = new Buffer(chunkSize);
+        long offset = 0;
+        while (true) {
+            xs.fill(x);
+            ys.fill(y);
+            final int size = Math.min(xs.size, ys.size);
+            if (!chunk.test(xs.elements, ys.elements, size, offset)) {
+                return false;
+            }
+            offset += size;
+            if (xs.size != ys.size) {
+                ended.accept(offset);
+                return false;
+            }
+            if (size < chunkSize) {
+                return true;
+            }
+        }
+    }
+
+    static boolean lenient(final Spliterator<?> x,
+                           final Spliterator<?> y,
+                           final int maxPending,
+                           final ToIntFunction<Object> hash,
+                           final BiPredicate<Object, Object> equal) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("the number of pending elements must be positive");
+        }
+        final long xSize = x.getExactSizeIfKnown();
+        final long ySize = y.getExactSizeIfKnown();
+        if (xSize >= 0 && ySize >= 0 && xSize != ySize) {
+            return false;
+        }
+        final Pending fromX = new Pending(maxPending);
+        final Pending fromY = new Pending(maxPending);
+        final Buffer xs = new Buffer(CHUNK);
+        final Buffer ys = new Buffer(CHUNK);
+        boolean moreX = true;
+        boolean moreY = true;
+        while (moreX || moreY) {
+            if (moreX) {
+                xs.fill(x);
+                moreX = xs.size == CHUNK;
+                for (int i = 0; i < xs.size; i++) {
+                    final Object e = xs.elements[i];
+                    final int h = hash.applyAsInt(e);
+                    if (!fromY.remove(e, h, (pending, o) -> equal.test(o, pending))) {
+                        // nothing left on y to match it
+                        if (!moreY) {
+                            return false;
+                        }
+                        fromX.add(e, h);
+                    }
+                }
+            }
+            if (moreY) {
+                ys.fill(y);
+                moreY = ys.size == CHUNK;
+                for (int i = 0; i < ys.size; i++) {
+                    final Object e = ys.elements[i];
+                    final int h = hash.applyAsInt(e);
+                    if (!fromX.remove(e, h, equal)) {
+                        if (!moreX) {
+                            return false;
+                        }
+                        fromY.add(e, h);
+                    }
+                }
+            }
+            // once a side has ended, what waits on the other one never gets a match
+            if (!moreX && !fromY.isEmpty() || !moreY && !fromX.isEmpty()) {
+                return false;
+            }
+        }
+        return fromX.isEmpty() && fromY.isEmpty();
+    }
+
+    static boolean sized(final Spliterator<?> x, final Spliterator<?> y) {
+        return x.hasCharacteristics(Spliterator.SIZED) && y.hasCharacteristics(Spliterator.SIZED);
+    }
+
+    // the elements read by the last fill, overwritten by the next one
+    private static final class Buffer implements Consumer<Object> {
+        final Object[] elements;
+        int size;
+
+        Buffer(final int capacity) {
+            this.elements = new Object[capacity];
+        }
+
+        @Override
+        public void accept(final Object e) {
+            elements[size++] = e;
+        }
+
+        void fill(final Spliterator<?> s) {
+            size = 0;
+            while (size < elements.length && s.tryAdvance(this)) {
+                // accepted
+            }
+        }
+    }
+
+    // a multiset of the elements of one side without a match, by hash
+    private static final class Pending {
+        private final Map<Integer, List<Object>> buckets = new HashMap<>();
+        private final int max;
+        private int size;
+
+        Pending(final int max) {
+            this.max = max;
+        }
+
+        void add(final Object e, final int hash) {
+            if (size == max) {
+                throw new IllegalStateException(
+                        "more than " + max + " elements wait for a match: the sides are too far out of order");
+            }
+            buckets.computeIfAbsent(hash, h -> new ArrayList<>(1)).add(e);
+            size++;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        // removes the first element equal to e, in the order they were added, if any
+        boolean remove(final Object e, final int hash, final BiPredicate<Object, Object> equal) {
+            final List<Object> bucket = buckets.get(hash);
+            if (bucket == null) {
+                return false;
+            }
+            for (final Iterator<Object> it = bucket.iterator(); it.hasNext(); ) {
+                if (equal.test(it.next(), e)) {
+                    it.remove();
+                    if (bucket.isEmpty()) {
+                        buckets.remove(hash);
+                    }
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package deepequals;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+import deepequals.comparator.Comparator;
+import deepequals.comparator.TypeTokenComparator;
+
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.ToDoubleFunction;
+
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.floatToIntBits;
+
+// how close two floating point values must be to be equal: within an absolute
+// difference, within a difference relative to the larger magnitude, or within so many
+// units in the last place. Applies to float and double, their boxes, and arrays of them.
+// As with equals, NaN equals NaN, and an infinity equals only itself; unlike equals, 0.0
+// equals -0.0. Not transitive: deepHashCode does not hash the values it applies to.
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+public final class Tolerance {
+    enum Mode { ABSOLUTE, RELATIVE, ULPS }
+
+    final Mode mode;
+    final double epsilon;
+    final long ulps;
+    private final Map<TypeToken, Comparator> comparators;
+
+    private Tolerance(final Mode mode, final double epsilon, final long ulps) {
+        this.mode = mode;
+        this.epsilon = epsilon;
+        this.ulps = ulps;
+        this.comparators = ImmutableMap.<TypeToken, Comparator>builder()
+                .put(entry(double.class, (x, y) -> test((double) x, (double) y)))
+                .put(entry(Double.class, (x, y) -> test((double) x, (double) y)))
+                .put(entry(float.class, (x, y) -> test((float) x, (float) y)))
+                .put(entry(Float.class, (x, y) -> test((float) x, (float) y)))
+                .put(entry(double[].class, (x, y) -> ToleranceKernels.test(this, (double[]) x, (double[]) y)))
+                .put(entry(float[].class, (x, y) -> ToleranceKernels.test(this, (float[]) x, (float[]) y)))
+                .put(entry(Double[].class, (x, y) -> testBoxed((Object[]) x, (Object[]) y)))
+                .put(entry(Float[].class, (x, y) -> testBoxed((Object[]) x, (Object[]) y)))
+                .build();
+    }
+
+    // |x - y| <= epsilon
+    public static Tolerance absolute(final double epsilon) {
+        return new Tolerance(Mode.ABSOLUTE, checked(epsilon), 0);
+    }
+
+    // |x - y| <= epsilon * max(|x|, |y|)
+    public static Tolerance relative(final double epsilon) {
+        return new Tolerance(Mode.RELATIVE, checked(epsilon), 0);
+    }
+
+    // at most that many representable values apart, counted in the precision of the type:
+    // float values are further apart than double ones
+    public static Tolerance ulps(final long ulps) {
+        if (ulps < 0) {
+            throw new IllegalArgumentException("the number of ulps must not be negative");
+        }
+        return new Tolerance(Mode.ULPS, 0, ulps);
+    }
+
+    // null unless the type is one the tolerance applies to
+    Comparator comparator(final TypeToken tt) {
+        return comparators.get(tt);
+    }
+
+    // compares a float or double property, read without boxing it
+    BiPredicate<Object, Object> primitiveEquality(final ToDoubleFunction<Object> read, final boolean single) {
+        return single
+                ? (x, y) -> test((float) read.applyAsDouble(x), (float) read.applyAsDouble(y))
+                : (x, y) -> test(read.applyAsDouble(x), read.applyAsDouble(y));
+    }
+
+    boolean test(final double x, final double y) {
+        if (x == y) {
+            return true;
+        }
+        if (Double.isNaN(x) || Double.isNaN(y) || Double.isInfinite(x) || Double.isInfinite(y)) {
+            return Double.isNaN(x) && Double.isNaN(y);
+        }
+        switch (mode) {
+            case ABSOLUTE:
+                return Math.abs(x - y) <= epsilon;
+            case RELATIVE:
+                return Math.abs(x - y) <= epsilon * Math.max(Math.abs(x), Math.abs(y));
+            default:
+                return distance(ordered(doubleToLongBits(x)), ordered(doubleToLongBits(y))) <= ulps;
+        }
+    }
+
+    boolean test(final float x, final float y) {
+        if (mode != Mode.ULPS) {
+            return test((double) x, (double) y);
+        }
+        if (x == y) {
+            return true;
+        }
+        if (Float.isNaN(x) || Float.isNaN(y) || Float.isInfinite(x) || Float.isInfinite(y)) {
+            return Float.isNaN(x) && Float.isNaN(y);
+        }
+        return Math.abs((long) ordered(floatToIntBits(x)) - ordered(floatToIntBits(y))) <= ulps;
+    }
+
+    // the scalar loops over the elements from inclusive to to exclusive, see ToleranceKernels.
+    // The bound checks fail on NaN and infinities, which then go through test
+    boolean testEach(final double[] x, final double[] y, final int from, final int to) {
+        switch (mode) {
+            case ABSOLUTE:
+                for (int i = from; i < to; i++) {
+                    if (!(Math.abs(x[i] - y[i]) <= epsilon) && !test(x[i], y[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            case RELATIVE:
+                for (int i = from; i < to; i++) {
+                    final double diff = Math.abs(x[i] - y[i]);
+                    if (!(diff <= epsilon * Math.max(Math.abs(x[i]), Math.abs(y[i])) && diff < Double.POSITIVE_INFINITY)
+                            && !test(x[i], y[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                for (int i = from; i < to; i++) {
+                    if (x[i] != y[i] && !test(x[i], y[i])) {
+                        return false;
+                    }
+                }
+                return true;
+        }
+    }
+
+    boolean testEach(final float[] x, final float[] y, final int from, final int to) {
+        switch (mode) {
+            case ABSOLUTE:
+                for (int i = from; i < to; i++) {
+                    if (!(Math.abs((double) x[i] - y[i]) <= epsilon) && !test(x[i], y[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            case RELATIVE:
+                for (int i = from; i < to; i++) {
+                    final double diff = Math.abs((double) x[i] - y[i]);
+                    if (!(diff <= epsilon * Math.max(Math.abs(x[i]), Math.abs(y[i])) && diff < Double.POSITIVE_INFINITY)
+                            && !test(x[i], y[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                for (int i = from; i < to; i++) {
+                    if (x[i] != y[i] && !test(x[i], y[i])) {
+                        return false;
+                    }
+                }
+                return true;
+        }
+    }
+
+    private boolean testBoxed(final Object[] x, final Object[] y) {
+        if (x.length != y.length) {
+            return false;
+        }
+        for (int i = 0; i < x.length; i++) {
+            final Object a = x[i];
+            final Object b = y[i];
+            if (a == null || b == null) {
+                if (a != b) {
+                    return false;
+                }
+            } else if (a instanceof Float
+                    ? !test((float) (Float) a, (float) (Float) b)
+                    : !test((double) (Double) a, (double) (Double) b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double checked(final double epsilon) {
+        if (!(epsilon >= 0) || Double.isInfinite(epsilon)) {
+            throw new IllegalArgumentException("the tolerance must be finite and not negative");
+        }
+        return epsilon;
+    }
+
+    private static Map.Entry<TypeToken, Comparator> entry(final Class<?> c, final BiPredicate<Object, Object> p) {
+        final TypeToken tt = TypeToken.of(c);
+        return Maps.immutableEntry(tt, new TypeTokenComparator(tt, p, x -> 0));
+    }
+
+    // the difference of two ordered bits, saturated
+    private static long distance(final long x, final long y) {
+        final long result = x - y;
+        // overflow when the operands have different signs and the result has not the sign of x
+        if (((x ^ y) & (x ^ result)) < 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.abs(result);
+    }
+
+    // the bits of a double as a long that orders like the double: -0.0 and 0.0 are both 0
+    private static long ordered(final long bits) {
+        return bits < 0 ? Long.MIN_VALUE - bits : bits;
+    }
+
+    private static int ordered(final int bits) {
+        return bits < 0 ? Integer.MIN_VALUE - bits : bits;
+    }
+}
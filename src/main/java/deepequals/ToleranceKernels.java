@@ -0,0 +1,16 @@
+package deepequals;
+
+// arrays compared under a tolerance, one element at a time. From Java 17 on, many
+// elements at a time when the application adds the jdk.incubator.vector module: see the
+// overlay in META-INF/versions/17.
+final class ToleranceKernels {
+    private ToleranceKernels() {}
+
+    static boolean test(final Tolerance t, final double[] x, final double[] y) {
+        return x.length == y.length && t.testEach(x, y, 0, x.length);
+    }
+
+    static boolean test(final Tolerance t, final float[] x, final float[] y) {
+        return x.length == y.length && t.testEach(x, y, 0, x.length);
+    }
+}
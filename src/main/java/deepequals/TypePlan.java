@@ -0,0 +1,136 @@
+package deepequals;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.reflect.TypeToken;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// the getters of a type, cheapest first: two objects that differ in a primitive should
+// not have their collections walked to find out. The order changes the work, never the
+// outcome. With an AdaptiveOrdering the order starts from the one learned so far, if
+// any, and then follows the mismatches observed.
+@SuppressWarnings("UnstableApiUsage")
+final class TypePlan {
+    // comparisons of a type between two reorderings of its getters
+    static final int REORDER_EVERY = 1 << 10;
+
+    private static final Ordering<Getter> BY_COST = Ordering.natural()
+            .onResultOf((Getter g) -> cost(g.type()))
+            .compound(Ordering.natural().onResultOf(Getter::name));
+
+    private final TypeToken typeToken;
+    private final AdaptiveOrdering ordering;
+    // the getters in the order of the cost, which the counters below follow
+    private final List<Getter> byCost;
+    // the index of each getter in byCost
+    private final Map<Getter, Integer> slots;
+    // deliberately racy plain ints, as they are bumped on every comparison: a lost
+    // update, or two threads reordering at once, only delays or repeats a reordering,
+    // and the order never changes an outcome
+    private final int[] mismatches;
+    private int observations;
+    private volatile List<Getter> getters;
+
+    TypePlan(final TypeToken typeToken,
+             final Iterable<Getter> getters,
+             final AdaptiveOrdering ordering) {
+        this.typeToken = typeToken;
+        this.ordering = ordering;
+        this.byCost = BY_COST.immutableSortedCopy(getters);
+        this.slots = new IdentityHashMap<>(byCost.size());
+        for (int i = 0; i < byCost.size(); i++) {
+            slots.put(byCost.get(i), i);
+        }
+        this.mismatches = ordering != null ? new int[byCost.size()] : null;
+        this.getters = ordering != null ? learned(byCost, ordering.get(name())) : byCost;
+    }
+
+    // the order of the cost, whatever the current one
+    List<Getter> byCost() {
+        return byCost;
+    }
+
+    // the current order: always the same list unless adaptive
+    List<Getter> getters() {
+        return getters;
+    }
+
+    // the slot of the counter of the given getter, one of the getters of the plan
+    int slot(final Getter g) {
+        return slots.get(g);
+    }
+
+    // a comparison of two objects of the type was made and found a mismatch in the getter
+    // of the given slot, if not negative. Adaptive plans only.
+    void observe(final int mismatch) {
+        if (mismatch >= 0) {
+            mismatches[mismatch]++;
+        }
+        if (++observations % REORDER_EVERY == 0) {
+            reorder();
+        }
+    }
+
+    TypeToken typeToken() {
+        return typeToken;
+    }
+
+    private String name() {
+        return typeToken.toString();
+    }
+
+    // the most telling getters first; ties keep their current order, so that a learned
+    // order survives until there is evidence against it. The counters are halved so
+    // that what was seen lately weighs the most.
+    private void reorder() {
+        final List<Getter> current = getters;
+        final List<Getter> result = Ordering.natural()
+                .reverse()
+                .onResultOf((Getter g) -> mismatches[slot(g)])
+                .immutableSortedCopy(current);
+        for (int i = 0; i < mismatches.length; i++) {
+            mismatches[i] /= 2;
+        }
+        if (!result.equals(current)) {
+            getters = result;
+            final List<String> names = new ArrayList<>(result.size());
+            result.forEach(g -> names.add(g.name()));
+            ordering.put(name(), ImmutableList.copyOf(names));
+        }
+    }
+
+    // primitives and enums, then the other values compared with equals (String, java.time),
+    // then objects compared property by property, then sequences and maps. Comparators
+    // are not known here and do not count.
+    private static int cost(final TypeToken tt) {
+        switch (NodeKind.of(tt, Overrides.NONE)) {
+            case EQUALS:
+                final TypeToken unwrapped = tt.unwrap();
+                return unwrapped.isPrimitive() || unwrapped.getRawType().isEnum() ? 0 : 1;
+            case OPTIONAL:
+            case DEEP:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    // the getters named, in that order, then the others by cost
+    private static List<Getter> learned(final List<Getter> byCost, final List<String> names) {
+        if (names == null) {
+            return byCost;
+        }
+        final Map<String, Integer> positions = new HashMap<>(names.size());
+        for (int i = names.size() - 1; i >= 0; i--) {
+            positions.put(names.get(i), i);
+        }
+        return Ordering.natural()
+                .onResultOf((Getter g) -> positions.getOrDefault(g.name(), names.size()))
+                .immutableSortedCopy(byCost);
+    }
+}
@@ -0,0 +1,38 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static deepequals.Getters.getters;
+
+// reflection over a type happens once per (type, options) rather than once per
+// visited object. Plans hang off the raw class via ClassValue so that they do not
+// keep classes (and their class loaders) alive.
+@SuppressWarnings("UnstableApiUsage")
+final class TypePlans {
+    private final Options options;
+    private final ClassValue<ConcurrentMap<TypeToken, TypePlan>> plans =
+            new ClassValue<ConcurrentMap<TypeToken, TypePlan>>() {
+                @Override
+                protected ConcurrentMap<TypeToken, TypePlan> computeValue(final Class<?> c) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    TypePlans(final Options options) {
+        this.options = options;
+    }
+
+    TypePlan plan(final TypeToken tt) {
+        final ConcurrentMap<TypeToken, TypePlan> byTypeToken = plans.get(tt.getRawType());
+        final TypePlan result = byTypeToken.get(tt);
+        if (result != null) {
+            return result;
+        }
+        final TypePlan plan = new TypePlan(tt, getters(tt, options), options.ordering);
+        final TypePlan previous = byTypeToken.putIfAbsent(tt, plan);
+        return previous != null ? previous : plan;
+    }
+}
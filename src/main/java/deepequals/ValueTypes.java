@@ -0,0 +1,143 @@
+package deepequals;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
+import deepequals.comparator.Comparator;
+import deepequals.comparator.TypeTokenComparator;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+// the types whose values are compared as a whole, never property by property: with equals,
+// or with compareTo for those registered that way, e.g. BigDecimal when 1.0 and 1.00 are
+// to be equal. Looked up by the raw type of the type token. Primitives, their wrappers
+// and enums always are values. Immutable: the methods that add types return a new
+// registry.
+@SuppressWarnings({"rawtypes", "unchecked", "UnstableApiUsage"})
+public final class ValueTypes {
+    private static final ValueTypes DEFAULTS = new ValueTypes(
+            ImmutableSet.of(
+                    Object.class,
+                    String.class,
+                    Number.class,
+                    BigDecimal.class,
+                    BigInteger.class,
+                    UUID.class,
+                    URI.class,
+                    File.class,
+                    Path.class,
+                    Charset.class,
+                    Currency.class,
+                    Locale.class,
+                    Class.class,
+                    DayOfWeek.class,
+                    Duration.class,
+                    Instant.class,
+                    LocalDate.class,
+                    LocalDateTime.class,
+                    LocalTime.class,
+                    Month.class,
+                    MonthDay.class,
+                    OffsetDateTime.class,
+                    OffsetTime.class,
+                    Period.class,
+                    Year.class,
+                    YearMonth.class,
+                    ZoneId.class,
+                    ZoneOffset.class,
+                    ZonedDateTime.class),
+            ImmutableMap.of());
+
+    private final Set<Class<?>> byEquals;
+    private final Map<Class<?>, Comparator> byCompareTo;
+
+    private ValueTypes(final Set<Class<?>> byEquals, final Map<Class<?>, Comparator> byCompareTo) {
+        this.byEquals = byEquals;
+        this.byCompareTo = byCompareTo;
+    }
+
+    // the JDK types that are values: strings, numbers, java.time, UUID, URI, Currency ...
+    public static ValueTypes defaults() {
+        return DEFAULTS;
+    }
+
+    // none but the primitives, their wrappers, enums, String and Object
+    public static ValueTypes none() {
+        return new ValueTypes(ImmutableSet.of(Object.class, String.class), ImmutableMap.of());
+    }
+
+    // these types compared with equals
+    public ValueTypes with(final Class<?>... classes) {
+        final Map<Class<?>, Comparator> compareTo = new HashMap<>(byCompareTo);
+        for (final Class<?> c : classes) {
+            compareTo.remove(c);
+        }
+        return new ValueTypes(ImmutableSet.<Class<?>>builder().addAll(byEquals).add(classes).build(),
+                              ImmutableMap.copyOf(compareTo));
+    }
+
+    // BigDecimal compared with compareTo, hashed to agree with it. The other types need a
+    // hash, see below: IllegalArgumentException
+    public <T extends Comparable<? super T>> ValueTypes withCompareTo(final Class<T> c) {
+        if (c != BigDecimal.class) {
+            throw new IllegalArgumentException(
+                    c.getName() + " compared with compareTo needs a hash that agrees with it");
+        }
+        return withCompareTo(BigDecimal.class, x -> x.stripTrailingZeros().hashCode());
+    }
+
+    // this type compared with compareTo, and hashed by deepHashCode with the given hash, which
+    // must agree with compareTo: values that compare as 0 get the same hash. A constant hash
+    // is consistent with any compareTo, but then all the values of the type fall in one bucket
+    // of the order-lenient comparisons, which become quadratic in the number of elements
+    public <T extends Comparable<? super T>> ValueTypes withCompareTo(final Class<T> c,
+                                                                      final ToIntFunction<? super T> hash) {
+        final Map<Class<?>, Comparator> compareTo = new HashMap<>(byCompareTo);
+        compareTo.put(c, new TypeTokenComparator(
+                TypeToken.of(c),
+                (x, y) -> ((Comparable) x).compareTo(y) == 0,
+                x -> hash.applyAsInt((T) x)));
+        return new ValueTypes(ImmutableSet.copyOf(Sets.difference(byEquals, ImmutableSet.of(c))),
+                              ImmutableMap.copyOf(compareTo));
+    }
+
+    // null unless the type is compared with compareTo
+    Comparator comparator(final TypeToken tt) {
+        return byCompareTo.isEmpty() ? null : byCompareTo.get(tt.getRawType());
+    }
+
+    boolean comparedWithEquals(final TypeToken tt) {
+        final TypeToken<?> unwrapped = tt.unwrap();
+        final Class<?> t = unwrapped.getRawType();
+        return unwrapped.isPrimitive() || t.isEnum() || byEquals.contains(t);
+    }
+}
@@ -0,0 +1,88 @@
+package deepequals;
+
+import com.google.common.reflect.TypeToken;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// the pairs of objects, by identity, that a single comparison has already proven equal
+// or is still comparing further up the stack. A pair that is seen again is taken to be
+// equal: if it was proven so, the work is not repeated, and if it is still being compared
+// the object graphs are cyclic and the pair is equal unless something else tells them apart.
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+final class VisitedPairs {
+    private final Set<Pair> inProgress = new HashSet<>();
+    private final Set<Pair> equal = new HashSet<>();
+    // the pairs in equal, in the order they were proven, so that they can be rolled back
+    private final List<Pair> proven = new ArrayList<>();
+
+    // returns the pair to pass to exit, or null when the pair need not be compared
+    Pair enter(final TypeToken tt, final Object x, final Object y) {
+        final Pair result = new Pair(tt, x, y);
+        if (equal.contains(result) || !inProgress.add(result)) {
+            return null;
+        }
+        return result;
+    }
+
+    void exit(final Pair pair, final boolean equals) {
+        inProgress.remove(pair);
+        if (equals) {
+            equal.add(pair);
+            proven.add(pair);
+        }
+    }
+
+    // for a subtask running on another thread: the pairs in progress are still in progress
+    // there, those proven equal are left behind
+    VisitedPairs fork() {
+        final VisitedPairs result = new VisitedPairs();
+        result.inProgress.addAll(inProgress);
+        return result;
+    }
+
+    boolean inProgress(final TypeToken tt, final Object x, final Object y) {
+        return inProgress.contains(new Pair(tt, x, y));
+    }
+
+    int mark() {
+        return proven.size();
+    }
+
+    // forgets the pairs proven since mark. A pair may have been proven assuming that
+    // another one, still in progress at the time, was equal; when the latter turns out
+    // not to be equal, without the whole comparison failing, the former must go.
+    void rollback(final int mark) {
+        for (int i = proven.size() - 1; i >= mark; i--) {
+            equal.remove(proven.remove(i));
+        }
+    }
+
+    static final class Pair {
+        private final TypeToken typeToken;
+        private final Object x;
+        private final Object y;
+
+        Pair(final TypeToken typeToken, final Object x, final Object y) {
+            this.typeToken = typeToken;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Pair)) {
+                return false;
+            }
+            final Pair other = (Pair) obj;
+            return x == other.x && y == other.y && typeToken.equals(other.typeToken);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(x) + System.identityHashCode(y);
+        }
+    }
+}
@@ -1,12 +1,24 @@
 package deepequals.comparator;
 
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
 public abstract class Comparator {
     private final BiPredicate predicate;
+    private final ToIntFunction hash;
 
     Comparator(final BiPredicate predicate) {
+        this(predicate, null);
+    }
+
+    Comparator(final BiPredicate predicate, final ToIntFunction hash) {
         this.predicate = predicate;
+        this.hash = hash;
+    }
+
+    // null when no hash consistent with the predicate was provided
+    public ToIntFunction hash() {
+        return hash;
     }
 
     public BiPredicate predicate() {
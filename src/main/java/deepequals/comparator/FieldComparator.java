@@ -3,6 +3,7 @@ package deepequals.comparator;
 import deepequals.DeepEquals;
 
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
 public class FieldComparator extends Comparator {
     private final DeepEquals.Field field;
@@ -12,6 +13,13 @@ public class FieldComparator extends Comparator {
         this.field = field;
     }
 
+    public FieldComparator(final DeepEquals.Field field,
+                           final BiPredicate f,
+                           final ToIntFunction hash) {
+        super(f, hash);
+        this.field = field;
+    }
+
     public DeepEquals.Field field() {
         return field;
     }
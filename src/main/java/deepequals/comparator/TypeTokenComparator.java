@@ -3,6 +3,7 @@ package deepequals.comparator;
 import com.google.common.reflect.TypeToken;
 
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
 @SuppressWarnings("UnstableApiUsage")
 public class TypeTokenComparator extends Comparator {
@@ -13,6 +14,13 @@ public class TypeTokenComparator extends Comparator {
         this.typeToken = typeToken;
     }
 
+    public TypeTokenComparator(final TypeToken typeToken,
+                               final BiPredicate predicate,
+                               final ToIntFunction hash) {
+        super(predicate, hash);
+        this.typeToken = typeToken;
+    }
+
     public TypeToken typeToken() {
         return typeToken;
     }
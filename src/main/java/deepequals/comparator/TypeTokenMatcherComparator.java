@@ -3,6 +3,7 @@ package deepequals.comparator;
 import com.google.common.reflect.TypeToken;
 
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
 @SuppressWarnings("UnstableApiUsage")
 public abstract class TypeTokenMatcherComparator extends Comparator {
@@ -10,5 +11,9 @@ public abstract class TypeTokenMatcherComparator extends Comparator {
         super(predicate);
     }
 
+    protected TypeTokenMatcherComparator(final BiPredicate predicate, final ToIntFunction hash) {
+        super(predicate, hash);
+    }
+
     public abstract boolean matches(TypeToken tt);
 }
@@ -0,0 +1,33 @@
+package deepequals;
+
+import java.lang.invoke.MethodHandles;
+
+import static java.lang.reflect.Modifier.isPublic;
+
+// as in the Java 8 version, and a lookup with private access to the other classes, e.g.
+// nested classes that are not public, when their module opens them to this one: the
+// spun class is then defined next to the class it reads
+final class Lookups {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private Lookups() {}
+
+    static MethodHandles.Lookup in(final Class<?> c) {
+        if (isPublic(c.getModifiers()) && isVisible(c)) {
+            return LOOKUP;
+        }
+        try {
+            return MethodHandles.privateLookupIn(c, LOOKUP);
+        } catch (final IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static boolean isVisible(final Class<?> c) {
+        try {
+            return Class.forName(c.getName(), false, Lookups.class.getClassLoader()) == c;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
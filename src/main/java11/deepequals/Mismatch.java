@@ -0,0 +1,45 @@
+package deepequals;
+
+import java.util.Arrays;
+
+// Arrays.mismatch: an intrinsic that compares many elements at a time. Floating point
+// elements compare like Double.equals and Float.equals, as in the Java 8 version.
+final class Mismatch {
+    private Mismatch() {}
+
+    static int mismatch(final boolean[] x, final boolean[] y) {
+        return Arrays.mismatch(x, y);
+    }
+
+    static int mismatch(final byte[] x, final byte[] y) {
+        return Arrays.mismatch(x, y);
+    }
+
+    static int mismatch(final char[] x, final char[] y) {
+        return Arrays.mismatch(x, y);
+    }
+
+    static int mismatch(final double[] x, final double[] y) {
+        return Arrays.mismatch(x, y);
+    }
+
+    static int mismatch(final float[] x, final float[] y) {
+        return Arrays.mismatch(x, y);
+    }
+
+    static int mismatch(final int[] x, final int[] y) {
+        return Arrays.mismatch(x, y);
+    }
+
+    static int mismatch(final long[] x, final long[] y) {
+        return Arrays.mismatch(x, y);
+    }
+
+    static int mismatch(final Object[] x, final Object[] y) {
+        return Arrays.mismatch(x, y);
+    }
+
+    static int mismatch(final short[] x, final short[] y) {
+        return Arrays.mismatch(x, y);
+    }
+}
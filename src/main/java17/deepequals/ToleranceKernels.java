@@ -0,0 +1,24 @@
+package deepequals;
+
+// as in the Java 8 version, with the vector API when the application adds the
+// jdk.incubator.vector module, e.g. with --add-modules jdk.incubator.vector: it is an
+// incubator module, resolved only on demand
+final class ToleranceKernels {
+    private static final boolean VECTORS = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private ToleranceKernels() {}
+
+    static boolean test(final Tolerance t, final double[] x, final double[] y) {
+        if (x.length != y.length) {
+            return false;
+        }
+        return VECTORS ? VectorKernels.test(t, x, y) : t.testEach(x, y, 0, x.length);
+    }
+
+    static boolean test(final Tolerance t, final float[] x, final float[] y) {
+        if (x.length != y.length) {
+            return false;
+        }
+        return VECTORS ? VectorKernels.test(t, x, y) : t.testEach(x, y, 0, x.length);
+    }
+}
@@ -0,0 +1,124 @@
+package deepequals;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.GE;
+import static jdk.incubator.vector.VectorOperators.LE;
+import static jdk.incubator.vector.VectorOperators.LT;
+import static jdk.incubator.vector.VectorOperators.NE;
+
+// arrays of the same length compared under a tolerance a vector at a time. A vector is
+// let through only when all its lanes are finite and surely within the tolerance; any
+// other one, e.g. with NaNs, is compared again one element at a time, so that the
+// outcome is always that of the scalar loop. Loaded only when the module is present.
+final class VectorKernels {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final long DOUBLE_EXPONENT = 0x7ff0000000000000L;
+    private static final int FLOAT_EXPONENT = 0x7f800000;
+    // beyond these numbers of ulps, the differences of the ordered bits might overflow
+    private static final long MAX_DOUBLE_ULPS = 1L << 52;
+    private static final long MAX_FLOAT_ULPS = 1L << 22;
+
+    private VectorKernels() {}
+
+    static boolean test(final Tolerance t, final double[] x, final double[] y) {
+        if (t.mode == Tolerance.Mode.ULPS && t.ulps >= MAX_DOUBLE_ULPS) {
+            return t.testEach(x, y, 0, x.length);
+        }
+        final int step = DOUBLES.length();
+        final int bound = DOUBLES.loopBound(x.length);
+        int i = 0;
+        for (; i < bound; i += step) {
+            final DoubleVector a = DoubleVector.fromArray(DOUBLES, x, i);
+            final DoubleVector b = DoubleVector.fromArray(DOUBLES, y, i);
+            if (!within(t, a, b) && !t.testEach(x, y, i, i + step)) {
+                return false;
+            }
+        }
+        return t.testEach(x, y, i, x.length);
+    }
+
+    static boolean test(final Tolerance t, final float[] x, final float[] y) {
+        if (t.mode == Tolerance.Mode.ULPS && t.ulps >= MAX_FLOAT_ULPS) {
+            return t.testEach(x, y, 0, x.length);
+        }
+        // the scalar loop computes in double: the bound is lowered to make up for the
+        // rounding of the float operations
+        final float epsilon = Math.max(0f, Math.nextDown((float) (t.epsilon * (1 - 0x1p-20))));
+        final int step = FLOATS.length();
+        final int bound = FLOATS.loopBound(x.length);
+        int i = 0;
+        for (; i < bound; i += step) {
+            final FloatVector a = FloatVector.fromArray(FLOATS, x, i);
+            final FloatVector b = FloatVector.fromArray(FLOATS, y, i);
+            if (!within(t, epsilon, a, b) && !t.testEach(x, y, i, i + step)) {
+                return false;
+            }
+        }
+        return t.testEach(x, y, i, x.length);
+    }
+
+    private static boolean within(final Tolerance t, final DoubleVector a, final DoubleVector b) {
+        final LongVector la = a.reinterpretAsLongs();
+        final LongVector lb = b.reinterpretAsLongs();
+        final VectorMask<Long> finite = la.and(DOUBLE_EXPONENT).compare(NE, DOUBLE_EXPONENT)
+                .and(lb.and(DOUBLE_EXPONENT).compare(NE, DOUBLE_EXPONENT));
+        if (!finite.allTrue()) {
+            return false;
+        }
+        switch (t.mode) {
+            case ABSOLUTE:
+                // the same operations as the scalar loop, hence the same outcome
+                return a.sub(b).abs().compare(LE, t.epsilon).allTrue();
+            case RELATIVE:
+                return a.sub(b).abs().compare(LE, a.abs().max(b.abs()).mul(t.epsilon)).allTrue();
+            default:
+                final LongVector d = ordered(la).sub(ordered(lb));
+                return d.compare(LE, t.ulps).and(d.compare(GE, -t.ulps)).allTrue();
+        }
+    }
+
+    private static boolean within(final Tolerance t,
+                                  final float epsilon,
+                                  final FloatVector a,
+                                  final FloatVector b) {
+        final IntVector ia = a.reinterpretAsInts();
+        final IntVector ib = b.reinterpretAsInts();
+        final VectorMask<Integer> finite = ia.and(FLOAT_EXPONENT).compare(NE, FLOAT_EXPONENT)
+                .and(ib.and(FLOAT_EXPONENT).compare(NE, FLOAT_EXPONENT));
+        if (!finite.allTrue()) {
+            return false;
+        }
+        switch (t.mode) {
+            case ABSOLUTE:
+                return a.sub(b).abs().compare(LE, epsilon).allTrue();
+            case RELATIVE:
+                // a bound that underflows is not reliable, but a difference of 0 always is
+                final FloatVector diff = a.sub(b).abs();
+                final FloatVector bound = a.abs().max(b.abs()).mul(epsilon);
+                return diff.compare(LE, bound)
+                        .and(bound.compare(GE, Float.MIN_NORMAL))
+                        .or(diff.compare(EQ, 0f))
+                        .allTrue();
+            default:
+                final IntVector d = ordered(ia).sub(ordered(ib));
+                return d.compare(LE, (int) t.ulps).and(d.compare(GE, (int) -t.ulps)).allTrue();
+        }
+    }
+
+    // see Tolerance.ordered
+    private static LongVector ordered(final LongVector bits) {
+        return bits.blend(bits.broadcast(Long.MIN_VALUE).sub(bits), bits.compare(LT, 0L));
+    }
+
+    private static IntVector ordered(final IntVector bits) {
+        return bits.blend(bits.broadcast(Integer.MIN_VALUE).sub(bits), bits.compare(LT, 0));
+    }
+}
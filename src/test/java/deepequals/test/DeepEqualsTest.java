@@ -4,27 +4,62 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
+import com.sun.management.ThreadMXBean;
+import deepequals.AdaptiveOrdering;
+import deepequals.Comparison;
+import deepequals.ComparisonListener;
+import deepequals.ComparisonResult;
+import deepequals.ComparisonStatistics;
+import deepequals.DeepEqualizer;
 import deepequals.DeepEquals;
+import deepequals.DeepEquals.WithOptions;
+import deepequals.DiffSink;
+import deepequals.Tolerance;
+import deepequals.ValueTypes;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static deepequals.DeepEquals.*;
+import static deepequals.MethodPredicates.methods;
 import static deepequals.test.DeepEqualsTest.EnumFoo.Hello;
 import static deepequals.test.DeepEqualsTest.EnumFoo.World;
+import static deepequals.test.Engines.check;
+import static deepequals.test.Engines.compare;
+import static deepequals.test.Engines.deepEquals;
+import static deepequals.test.Engines.deepEqualsTypeUnsafe;
+import static deepequals.test.Engines.deepHashCode;
+import static deepequals.test.Engines.diff;
+import static deepequals.test.Engines.withOptions;
 import static java.lang.Math.abs;
 import static java.util.Optional.empty;
+import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static utils.RandomUtils.uniqueString;
 
 @SuppressWarnings({"unused", "UnstableApiUsage"})
@@ -246,6 +281,46 @@ class DeepEqualsTest {
                         ImmutableList.of(1, 2)));
     }
 
+    static final class Bean {
+        private final int i;
+        private final String s;
+        Bean(final int i, final String s) { this.i = i; this.s = s; }
+        public int i() { return i; }
+        public String s() { return s; }
+    }
+
+    @SuppressWarnings("serial")
+    @Test
+    void _11_orderLenientDeep() {
+        final TypeToken<List<Bean>> tt = new TypeToken<List<Bean>>() {};
+        assertTrue(withOptions()
+                           .orderLenient()
+                           .deepEquals(tt,
+                                       ImmutableList.of(new Bean(1, "a"), new Bean(1, "a"), new Bean(2, "b")),
+                                       ImmutableList.of(new Bean(2, "b"), new Bean(1, "a"), new Bean(1, "a"))));
+        assertFalse(withOptions()
+                            .orderLenient()
+                            .deepEquals(tt,
+                                        ImmutableList.of(new Bean(1, "a"), new Bean(1, "a"), new Bean(2, "b")),
+                                        ImmutableList.of(new Bean(1, "a"), new Bean(2, "b"), new Bean(2, "b"))));
+        // overridden elements cannot be told apart by hash
+        assertTrue(withOptions()
+                           .orderLenient()
+                           .override(comparator(Bean.class, (x, y) -> x.i() == y.i()))
+                           .deepEquals(tt,
+                                       ImmutableList.of(new Bean(1, "a"), new Bean(2, "b")),
+                                       ImmutableList.of(new Bean(2, "x"), new Bean(1, "y"))));
+
+        final List<Bean> large = new ArrayList<>();
+        IntStream.range(0, 20_000).forEach(i -> large.add(new Bean(i, String.valueOf(i))));
+        final List<Bean> shuffled = new ArrayList<>(large);
+        Collections.shuffle(shuffled, new Random(42));
+        assertTimeout(Duration.ofSeconds(10),
+                      () -> assertTrue(withOptions()
+                                               .orderLenient()
+                                               .deepEquals(tt, large, shuffled)));
+    }
+
     @Disabled
     @Test
     void _12_equalsLenient() {
@@ -417,6 +492,905 @@ class DeepEqualsTest {
                 .deepEquals(Foo.class, new Foo(), new Foo()));
     }
 
+    @Test
+    void _20_build() throws Exception {
+        class Foo {
+            private final int i;
+            Foo(final int i) { this.i = i; }
+            public int i() { return i; }
+        }
+        final WithOptions options = withOptions()
+                .override(comparator(int.class, (x, y) -> abs(x) == abs(y)));
+        final DeepEqualizer equalizer = options.build();
+
+        // options added after building do not affect the equalizer
+        options.override(comparator(Foo.class, (x, y) -> true));
+        assertFalse(equalizer.deepEquals(Foo.class, new Foo(1), new Foo(2)));
+        assertTrue(options.deepEquals(Foo.class, new Foo(1), new Foo(2)));
+
+        // can be shared between threads
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> results = executor.invokeAll(
+                    Collections.nCopies(1000, () -> {
+                        final int i = ThreadLocalRandom.current().nextInt(100);
+                        return equalizer.deepEquals(Foo.class, new Foo(i), new Foo(-i))
+                                && !equalizer.deepEquals(Foo.class, new Foo(i), new Foo(i + 1));
+                    }));
+            for (final Future<Boolean> r : results) {
+                assertTrue(r.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void _21_primitiveArrays() {
+        assertAllTrue(DeepEquals::deepEqualsTypeUnsafe,
+                      int[].class, new int[] {1, 2}, new int[] {1, 2},
+                      long[].class, new long[] {1, 2}, new long[] {1, 2},
+                      double[].class, new double[] {1, Double.NaN}, new double[] {1, Double.NaN},
+                      float[].class, new float[] {1, Float.NaN}, new float[] {1, Float.NaN},
+                      byte[].class, new byte[] {1, 2}, new byte[] {1, 2},
+                      short[].class, new short[] {1, 2}, new short[] {1, 2},
+                      char[].class, new char[] {'a', 'b'}, new char[] {'a', 'b'},
+                      boolean[].class, new boolean[] {true}, new boolean[] {true},
+                      String[].class, new String[] {"a", null}, new String[] {"a", null});
+        assertAllFalse(DeepEquals::deepEqualsTypeUnsafe,
+                       int[].class, new int[] {1, 2}, new int[] {1, 3},
+                       int[].class, new int[] {1, 2}, new int[] {1, 2, 3},
+                       long[].class, new long[] {1, 2}, new long[] {2, 1},
+                       double[].class, new double[] {0.0}, new double[] {-0.0},
+                       float[].class, new float[] {1}, new float[] {2},
+                       byte[].class, new byte[] {1}, new byte[] {},
+                       short[].class, new short[] {1}, new short[] {2},
+                       char[].class, new char[] {'a'}, new char[] {'b'},
+                       boolean[].class, new boolean[] {true}, new boolean[] {false},
+                       String[].class, new String[] {"a", null}, new String[] {"a", "b"});
+
+        assertTrue(withOptions()
+                           .orderLenient()
+                           .deepEquals(int[].class, new int[] {1, 2}, new int[] {2, 1}));
+        assertTrue(withOptions()
+                           .override(comparator(int.class, (x, y) -> abs(x) == abs(y)))
+                           .deepEquals(int[].class, new int[] {1, 2}, new int[] {-1, 2}));
+
+        final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errContent));
+        try {
+            withOptions()
+                    .verbose()
+                    .deepEquals(double[].class,
+                                new double[] {1, 2, 3},
+                                new double[] {1, 2, 4});
+            assertEquals("[2]", get(errContent));
+            withOptions()
+                    .verbose()
+                    .deepEquals(long[].class, new long[] {1, 2}, new long[] {1});
+            assertEquals("[1]", get(errContent));
+        } finally {
+            System.setErr(null);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    @Test
+    void _22_deepHashCode() {
+        class Foo {
+            private final int i;
+            private final String s;
+            Foo(final int i, final String s) { this.i = i; this.s = s; }
+            public int i() { return i; }
+            public String s() { return s; }
+        }
+        assertEquals(deepHashCode(Foo.class, new Foo(1, "a")),
+                     deepHashCode(Foo.class, new Foo(1, "a")));
+        assertNotEquals(deepHashCode(Foo.class, new Foo(1, "a")),
+                        deepHashCode(Foo.class, new Foo(2, "a")));
+        assertEquals(0, deepHashCode(Foo.class, null));
+
+        // consistent with the options
+        assertEquals(withOptions()
+                             .ignore(methods("s"))
+                             .deepHashCode(Foo.class, new Foo(1, "a")),
+                     withOptions()
+                             .ignore(methods("s"))
+                             .deepHashCode(Foo.class, new Foo(1, "b")));
+        final TypeToken<List<Foo>> tt = new TypeToken<List<Foo>>() {};
+        final DeepEqualizer lenient = withOptions().orderLenient().build();
+        assertEquals(lenient.deepHashCode(tt, ImmutableList.of(new Foo(1, "a"), new Foo(2, "b"))),
+                     lenient.deepHashCode(tt, ImmutableList.of(new Foo(2, "b"), new Foo(1, "a"))));
+        assertEquals(deepHashCode(new TypeToken<Map<String, Foo>>() {},
+                                  ImmutableMap.of("x", new Foo(1, "a"), "y", new Foo(2, "b"))),
+                     deepHashCode(new TypeToken<Map<String, Foo>>() {},
+                                  ImmutableMap.of("y", new Foo(2, "b"), "x", new Foo(1, "a"))));
+
+        // an overridden type only contributes when its comparator comes with a hash
+        final DeepEqualizer byAbs = withOptions()
+                .override(comparator(int.class, (x, y) -> abs(x) == abs(y), x -> abs(x)))
+                .build();
+        assertTrue(byAbs.deepEquals(Foo.class, new Foo(1, "a"), new Foo(-1, "a")));
+        assertEquals(byAbs.deepHashCode(Foo.class, new Foo(1, "a")),
+                     byAbs.deepHashCode(Foo.class, new Foo(-1, "a")));
+        assertNotEquals(byAbs.deepHashCode(Foo.class, new Foo(1, "a")),
+                        byAbs.deepHashCode(Foo.class, new Foo(2, "a")));
+        assertEquals(withOptions()
+                             .override(comparator(int.class, (x, y) -> true))
+                             .deepHashCode(Foo.class, new Foo(1, "a")),
+                     withOptions()
+                             .override(comparator(int.class, (x, y) -> true))
+                             .deepHashCode(Foo.class, new Foo(2, "a")));
+    }
+
+    static final class Diamond {
+        private final Diamond left;
+        private final Diamond right;
+        private final AtomicInteger visits;
+        Diamond(final Diamond next, final AtomicInteger visits) {
+            this.left = next;
+            this.right = next;
+            this.visits = visits;
+        }
+        public Diamond left() { return left; }
+        public Diamond right() { return right; }
+        public int visits() { return visits.incrementAndGet(); }
+    }
+
+    static final class Ring {
+        private final int value;
+        private Ring next;
+        Ring(final int value) { this.value = value; this.next = this; }
+        public int value() { return value; }
+        public Ring next() { return next; }
+    }
+
+    @Test
+    void _23_memoizeByIdentity() {
+        // every level is reachable through two paths: 2^40 of them to the bottom
+        final AtomicInteger visits = new AtomicInteger();
+        Diamond x = null;
+        Diamond y = null;
+        for (int i = 0; i < 40; i++) {
+            x = new Diamond(x, visits);
+            y = new Diamond(y, visits);
+        }
+        final Diamond top1 = x;
+        final Diamond top2 = y;
+        assertTimeout(Duration.ofSeconds(10),
+                      () -> assertTrue(withOptions()
+                                               .memoizeByIdentity()
+                                               .override(comparator(int.class, (a, b) -> true))
+                                               .deepEquals(Diamond.class, top1, top2)));
+        assertEquals(80, visits.get());
+
+        // cycles are detected by identity, and cyclic graphs may be equal
+        final Ring one = new Ring(1);
+        final Ring other = new Ring(1);
+        other.next = new Ring(1);
+        other.next.next = other;
+        assertThrows(IllegalArgumentException.class,
+                     () -> deepEquals(Ring.class, one, other));
+        assertTrue(withOptions()
+                           .memoizeByIdentity()
+                           .deepEquals(Ring.class, one, other));
+        assertFalse(withOptions()
+                            .memoizeByIdentity()
+                            .deepEquals(Ring.class, one, new Ring(2)));
+        other.next.next = new Ring(2);
+        assertFalse(withOptions()
+                            .memoizeByIdentity()
+                            .deepEquals(Ring.class, one, other));
+        assertEquals(withOptions().memoizeByIdentity().deepHashCode(Ring.class, one),
+                     withOptions().memoizeByIdentity().deepHashCode(Ring.class, new Ring(1)));
+    }
+
+    @SuppressWarnings("serial")
+    @Test
+    void _24_parallel() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errContent));
+        try {
+            final TypeToken<List<Bean>> tt = new TypeToken<List<Bean>>() {};
+            final List<Bean> x = new ArrayList<>();
+            final Map<Integer, Bean> mx = new HashMap<>();
+            IntStream.range(0, 20_000).forEach(i -> {
+                x.add(new Bean(i, String.valueOf(i)));
+                mx.put(i, new Bean(i, String.valueOf(i)));
+            });
+            final List<Bean> y = new ArrayList<>(x);
+            final Map<Integer, Bean> my = new HashMap<>(mx);
+            // small enough a threshold to split the properties of a Bean too
+            final DeepEqualizer parallel = withOptions()
+                    .parallel(pool, 2)
+                    .build();
+            assertTrue(parallel.deepEquals(tt, x, y));
+            assertTrue(parallel.deepEquals(new TypeToken<Map<Integer, Bean>>() {}, mx, my));
+
+            y.set(15_000, new Bean(15_000, "x"));
+            y.set(5_000, new Bean(-1, "x"));
+            my.put(7, new Bean(7, "x"));
+            assertFalse(parallel.deepEquals(tt, x, y));
+            assertFalse(parallel.deepEquals(new TypeToken<Map<Integer, Bean>>() {}, mx, my));
+            assertFalse(parallel.deepEquals(tt, x, x.subList(0, 19_999)));
+
+            // the first mismatch, the one the sequential comparison reports, every time
+            withOptions()
+                    .verbose()
+                    .deepEquals(tt, x, y);
+            final String sequential = get(errContent);
+            assertTrue(sequential.startsWith("[5000]."));
+            for (int i = 0; i < 10; i++) {
+                withOptions()
+                        .parallel(pool, 64)
+                        .verbose()
+                        .deepEquals(tt, x, y);
+                assertEquals(sequential, get(errContent));
+            }
+        } finally {
+            System.setErr(null);
+            pool.shutdown();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    @Test
+    void _25_listener() {
+        final TypeToken<List<Bean>> tt = new TypeToken<List<Bean>>() {};
+        final ComparisonStatistics statistics = new ComparisonStatistics();
+        final DeepEqualizer listened = withOptions()
+                .listener(statistics)
+                .build();
+        assertTrue(listened.deepEquals(tt,
+                                       ImmutableList.of(new Bean(1, "a"), new Bean(2, "b")),
+                                       ImmutableList.of(new Bean(1, "a"), new Bean(2, "b"))));
+        assertEquals(1, statistics.calls());
+        // the list, two beans and two properties each
+        assertEquals(7, statistics.nodes());
+        assertEquals(2, statistics.maxDepth());
+        assertEquals(2, statistics.byType().get(TypeToken.of(Bean.class)).visits());
+        assertEquals(2, statistics.byType().get(TypeToken.of(String.class)).visits());
+        assertEquals(0, statistics.mismatches());
+
+        assertFalse(listened.deepEquals(tt,
+                                        ImmutableList.of(new Bean(1, "a")),
+                                        ImmutableList.of(new Bean(1, "b"))));
+        assertEquals(2, statistics.calls());
+        assertEquals(1, statistics.mismatches());
+        assertTrue(statistics.toString().startsWith("calls: 2, "));
+
+        statistics.reset();
+        withOptions()
+                .listener(statistics)
+                .memoizeByIdentity()
+                .deepEquals(Ring.class, new Ring(1), new Ring(1));
+        assertEquals(1, statistics.cycles());
+        withOptions()
+                .listener(statistics)
+                .override(comparator(String.class, (x, y) -> true))
+                .deepEquals(Bean.class, new Bean(1, "a"), new Bean(1, "b"));
+        assertEquals(1, statistics.overrides());
+
+        class One {
+            private final int i;
+            One(final int i) { this.i = i; }
+            public int i() { return i; }
+        }
+        final List<String> events = new ArrayList<>();
+        withOptions()
+                .listener(new ComparisonListener() {
+                    @Override
+                    public void enter(final TypeToken<?> tt, final Object x, final Object y, final int depth) {
+                        events.add("enter " + tt.getRawType().getSimpleName() + " " + depth);
+                    }
+
+                    @Override
+                    public void exit(final TypeToken<?> tt, final boolean equal, final int depth) {
+                        events.add("exit " + tt.getRawType().getSimpleName() + " " + equal);
+                    }
+
+                    @Override
+                    public void mismatch(final TypeToken<?> tt, final Object x, final Object y) {
+                        events.add("mismatch " + x + " " + y);
+                    }
+                })
+                .deepEquals(One.class, new One(1), new One(2));
+        assertEquals(ImmutableList.of("enter One 0",
+                                      "enter int 1",
+                                      "mismatch 1 2",
+                                      "exit int false",
+                                      "exit One false"),
+                     events);
+    }
+
+    @SuppressWarnings("serial")
+    @Test
+    void _26_iterablesInLockstep() {
+        // endless: only a comparison that stops at the first mismatch comes back
+        final Iterable<Integer> naturals = () -> IntStream.iterate(0, i -> i + 1).iterator();
+        final Iterable<Integer> skipping = () -> IntStream.iterate(0, i -> i == 2 ? 4 : i + 1).iterator();
+        assertTimeout(Duration.ofSeconds(10),
+                      () -> assertFalse(deepEquals(new TypeToken<Iterable<Integer>>() {},
+                                                   naturals,
+                                                   skipping)));
+
+        final TypeToken<Collection<Bean>> tt = new TypeToken<Collection<Bean>>() {};
+        final ArrayDeque<Bean> x = new ArrayDeque<>(ImmutableList.of(new Bean(1, "a"), new Bean(2, "b")));
+        assertTrue(deepEquals(tt, x, new ArrayDeque<>(ImmutableList.of(new Bean(1, "a"), new Bean(2, "b")))));
+        assertFalse(deepEquals(tt, x, new ArrayDeque<>(ImmutableList.of(new Bean(1, "a")))));
+        assertTrue(withOptions()
+                           .orderLenient()
+                           .deepEquals(tt, x, new ArrayDeque<>(ImmutableList.of(new Bean(2, "b"), new Bean(1, "a")))));
+
+        final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errContent));
+        try {
+            withOptions()
+                    .verbose()
+                    .deepEquals(new TypeToken<Iterable<Integer>>() {}, naturals, skipping);
+            assertEquals("[3]", get(errContent));
+            withOptions()
+                    .verbose()
+                    .deepEquals(tt, x, new ArrayDeque<>(ImmutableList.of(new Bean(1, "a"))));
+            assertEquals("[1]", get(errContent));
+        } finally {
+            System.setErr(null);
+        }
+    }
+
+    static final class Basket {
+        private final long id;
+        private final double weight;
+        private final List<Bean> beans;
+        private final Bean[] spares;
+        Basket(final long id, final double weight, final List<Bean> beans, final Bean[] spares) {
+            this.id = id; this.weight = weight; this.beans = beans; this.spares = spares;
+        }
+        public long id() { return id; }
+        public double weight() { return weight; }
+        public List<Bean> beans() { return beans; }
+        public Bean[] spares() { return spares; }
+    }
+
+    @Test
+    void _27_allocationFree() {
+        final java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        assumeTrue(mx instanceof ThreadMXBean);
+        final ThreadMXBean threads = (ThreadMXBean) mx;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // values outside of the caches of the boxes, equal but not identical
+        final Supplier<Basket> basket = () -> new Basket(
+                1L << 40,
+                0.1,
+                IntStream.range(1000, 2000).mapToObj(i -> new Bean(i, "a")).collect(toList()),
+                IntStream.range(1000, 1100).mapToObj(i -> new Bean(i, "b")).toArray(Bean[]::new));
+        final Basket x = basket.get();
+        final Basket y = basket.get();
+        for (int i = 0; i < 200; i++) {
+            assertTrue(deepEquals(Basket.class, x, y));
+        }
+
+        final long id = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100; i++) {
+            deepEquals(Basket.class, x, y);
+        }
+        final long perComparison = (threads.getThreadAllocatedBytes(id) - before) / 100;
+        // the state of a comparison takes a few objects, the 3300 nodes take none
+        assertTrue(perComparison < 1024, perComparison + " bytes per comparison");
+    }
+
+    @SuppressWarnings("serial")
+    @Test
+    void _28_diff() {
+        final List<String> differences = new ArrayList<>();
+        final List<Object> rights = new ArrayList<>();
+        final DiffSink sink = (path, left, right, reason) -> {
+            differences.add(path + " " + reason + " " + (left instanceof Bean ? "bean" : left));
+            rights.add(right);
+        };
+
+        final TypeToken<List<Bean>> beans = new TypeToken<List<Bean>>() {};
+        final List<Bean> x = ImmutableList.of(new Bean(1, "a"), new Bean(2, "b"), new Bean(3, "c"));
+        final Bean extra = new Bean(4, "d");
+        final List<Bean> y = ImmutableList.of(new Bean(1, "a"), new Bean(9, "b"), new Bean(3, "x"), extra);
+        assertEquals(3, diff(beans, x, y, sink));
+        assertEquals(ImmutableList.of("[1].i NOT_EQUAL 2", "[2].s NOT_EQUAL c", "[3] ONLY_RIGHT null"),
+                     differences);
+        assertEquals(ImmutableList.of(9, "x", extra), rights);
+
+        // stops at the cap
+        differences.clear();
+        assertEquals(2, withOptions().build().diff(beans, x, y, sink, 2));
+        assertEquals(ImmutableList.of("[1].i NOT_EQUAL 2", "[2].s NOT_EQUAL c"), differences);
+
+        differences.clear();
+        assertEquals(0, diff(beans, x, ImmutableList.of(new Bean(1, "a"), new Bean(2, "b"), new Bean(3, "c")), sink));
+        assertEquals(ImmutableList.of(), differences);
+
+        assertEquals(2, diff(new TypeToken<Map<String, Integer>>() {},
+                             ImmutableMap.of("a", 1, "b", 2),
+                             ImmutableMap.of("a", 1, "b", 3, "c", 4),
+                             sink));
+        assertEquals(ImmutableList.of("[b] NOT_EQUAL 2", "[c] ONLY_RIGHT null"), differences);
+
+        differences.clear();
+        assertEquals(2, withOptions()
+                .orderLenient()
+                .diff(new TypeToken<List<String>>() {},
+                      ImmutableList.of("a", "b", "c"),
+                      ImmutableList.of("c", "x", "a"),
+                      sink));
+        assertEquals(ImmutableList.of("[1] ONLY_LEFT b", "[1] ONLY_RIGHT null"), differences);
+    }
+
+    @Test
+    void _29_cheapPropertiesFirst() {
+        final AtomicInteger walked = new AtomicInteger();
+        class Order {
+            private final int id;
+            Order(final int id) { this.id = id; }
+            public List<Bean> lines() {
+                walked.incrementAndGet();
+                return ImmutableList.of(new Bean(id, "a"));
+            }
+            public Bean customer() {
+                walked.incrementAndGet();
+                return new Bean(id, "b");
+            }
+            public String reference() { return "r" + id; }
+            public long id() { return id; }
+        }
+        assertFalse(deepEquals(Order.class, new Order(1), new Order(2)));
+        assertEquals(0, walked.get());
+        assertTrue(deepEquals(Order.class, new Order(1), new Order(1)));
+        assertEquals(4, walked.get());
+
+        final List<String> paths = new ArrayList<>();
+        diff(Order.class, new Order(1), new Order(2), (path, left, right, reason) -> paths.add(path));
+        assertEquals(ImmutableList.of("id", "reference", "customer.i", "lines[0].i"), paths);
+    }
+
+    @Test
+    void _30_adaptiveOrdering() throws Exception {
+        final AtomicInteger authors = new AtomicInteger();
+        class Document {
+            private final int version;
+            Document(final int version) { this.version = version; }
+            public int author() {
+                authors.incrementAndGet();
+                return 1;
+            }
+            public int version() { return version; }
+        }
+        final AdaptiveOrdering ordering = new AdaptiveOrdering();
+        final DeepEqualizer equalizer = withOptions()
+                .adaptiveOrdering(ordering)
+                .build();
+        // author first, by name, until the versions turn out to tell documents apart
+        assertFalse(equalizer.deepEquals(Document.class, new Document(1), new Document(2)));
+        assertEquals(2, authors.get());
+        for (int i = 0; i < 2000; i++) {
+            assertFalse(equalizer.deepEquals(Document.class, new Document(1), new Document(2)));
+        }
+        authors.set(0);
+        assertFalse(equalizer.deepEquals(Document.class, new Document(1), new Document(2)));
+        assertEquals(0, authors.get());
+        assertTrue(equalizer.deepEquals(Document.class, new Document(1), new Document(1)));
+
+        // a new process starts where the last one left off
+        final StringWriter stored = new StringWriter();
+        ordering.store(stored);
+        assertTrue(stored.toString().trim().endsWith("Document=version,author"), stored.toString());
+        authors.set(0);
+        assertFalse(withOptions()
+                            .adaptiveOrdering(AdaptiveOrdering.load(new StringReader(stored.toString())))
+                            .deepEquals(Document.class, new Document(1), new Document(2)));
+        assertEquals(0, authors.get());
+    }
+
+    static final class Doc {
+        private final int id;
+        private final String text;
+        Doc(final int id, final String text) { this.id = id; this.text = text; }
+        public int id() { return id; }
+        public String text() { return text; }
+    }
+
+    @Test
+    void _30_adaptiveOrderingKeepsHashes() {
+        // texts hash to 0: the hash of a doc depends on the order its properties are hashed in
+        final DeepEqualizer equalizer = withOptions()
+                .adaptiveOrdering(new AdaptiveOrdering())
+                .override(comparator(String.class, String::equalsIgnoreCase))
+                .orderLenient()
+                .build();
+        final int hash = equalizer.deepHashCode(Doc.class, new Doc(1, "a"));
+        // the texts tell docs apart: text first from the 1024th comparison on
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(equalizer.deepEquals(Doc.class, new Doc(1, "a"), new Doc(1, "b")));
+        }
+        // reorders while matching, after the docs of one side are bucketed by hash
+        final List<Doc> docs = IntStream.range(0, 2000).mapToObj(i -> new Doc(i, "t" + i)).collect(toList());
+        final List<Doc> reversed = IntStream.range(0, 2000)
+                .mapToObj(i -> new Doc(1999 - i, "T" + (1999 - i)))
+                .collect(toList());
+        assertTrue(equalizer.deepEquals(new TypeToken<List<Doc>>() {}, docs, reversed));
+        for (int i = 0; i < 2000; i++) {
+            assertFalse(equalizer.deepEquals(Doc.class, new Doc(1, "a"), new Doc(1, "b")));
+        }
+        assertEquals(hash, equalizer.deepHashCode(Doc.class, new Doc(1, "a")));
+        assertTrue(equalizer.deepEquals(new TypeToken<List<Doc>>() {}, docs, reversed));
+    }
+
+    static final class State {
+        private final List<Bean> items;
+        private final Map<String, Bean> accounts;
+        State(final List<Bean> items, final Map<String, Bean> accounts) {
+            this.items = new ArrayList<>(items); this.accounts = new HashMap<>(accounts);
+        }
+        public List<Bean> items() { return items; }
+        public Map<String, Bean> accounts() { return accounts; }
+    }
+
+    @Test
+    void _31_recompare() {
+        final State x = new State(ImmutableList.of(new Bean(1, "a"), new Bean(2, "b")),
+                                  ImmutableMap.of("k", new Bean(3, "c")));
+        final State y = new State(ImmutableList.of(new Bean(1, "a"), new Bean(2, "x")),
+                                  ImmutableMap.of("k", new Bean(3, "c")));
+        final Comparison<State> first = compare(State.class, x, y);
+        assertFalse(first.equal());
+        assertEquals(ImmutableList.of("items[1].s"), paths(first));
+
+        // only the dirty subtrees are compared again
+        y.items().set(1, new Bean(2, "b"));
+        y.accounts().put("k", new Bean(4, "c"));
+        final Comparison<State> second = first.recompare(x, y, ImmutableList.of("items[1]"));
+        assertTrue(second.equal());
+        assertFalse(first.equal());
+        final Comparison<State> third = second.recompare(x, y, ImmutableList.of("accounts[k].i"));
+        assertEquals(ImmutableList.of("accounts[k].i"), paths(third));
+
+        // as far as both sides go: the whole list
+        y.items().add(new Bean(5, "e"));
+        final Comparison<State> fourth = third.recompare(x, y, ImmutableList.of("items[2].s", "items"));
+        assertEquals(ImmutableList.of("accounts[k].i", "items[2]"), paths(fourth));
+
+        y.accounts().put("k", new Bean(3, "c"));
+        y.items().remove(2);
+        assertTrue(fourth.recompare(x, y, ImmutableList.of("")).equal());
+    }
+
+    static final class Payment {
+        private final UUID id;
+        private final BigDecimal amount;
+        private final Instant at;
+        private final Money fee;
+        Payment(final UUID id, final BigDecimal amount, final Instant at, final Money fee) {
+            this.id = id; this.amount = amount; this.at = at; this.fee = fee;
+        }
+        public UUID id() { return id; }
+        public BigDecimal amount() { return amount; }
+        public Instant at() { return at; }
+        public Money fee() { return fee; }
+    }
+
+    // no properties: equal to any other Money unless it is a value type
+    static final class Money {
+        private final long cents;
+        Money(final long cents) { this.cents = cents; }
+        @Override public boolean equals(final Object o) { return o instanceof Money && ((Money) o).cents == cents; }
+        @Override public int hashCode() { return Long.hashCode(cents); }
+    }
+
+    // compares case-insensitively
+    static final class Label implements Comparable<Label> {
+        private final String text;
+        Label(final String text) { this.text = text; }
+        @Override public int compareTo(final Label o) { return text.compareToIgnoreCase(o.text); }
+    }
+
+    @Test
+    void _32_valueTypes() {
+        final UUID id = UUID.randomUUID();
+        final Instant at = Instant.now();
+        final Payment x = new Payment(id, new BigDecimal("1.0"), at, new Money(5));
+        assertTrue(deepEquals(Payment.class, x, new Payment(id, new BigDecimal("1.0"), at, new Money(5))));
+        assertFalse(deepEquals(Payment.class, x, new Payment(id, new BigDecimal("1.00"), at, new Money(5))));
+        assertFalse(deepEquals(Payment.class, x, new Payment(UUID.randomUUID(), new BigDecimal("1.0"), at, new Money(5))));
+        assertTrue(deepEquals(Payment.class, x, new Payment(id, new BigDecimal("1.0"), at, new Money(7))));
+
+        final DeepEqualizer equalizer = withOptions()
+                .valueTypes(ValueTypes.defaults().withCompareTo(BigDecimal.class).with(Money.class))
+                .build();
+        final Payment y = new Payment(id, new BigDecimal("1.00"), at, new Money(5));
+        assertTrue(equalizer.deepEquals(Payment.class, x, y));
+        assertEquals(equalizer.deepHashCode(Payment.class, x), equalizer.deepHashCode(Payment.class, y));
+        assertFalse(equalizer.deepEquals(Payment.class, x, new Payment(id, new BigDecimal("1.0"), at, new Money(7))));
+
+        // any other type compared with compareTo comes with a hash that agrees with it
+        assertThrows(IllegalArgumentException.class, () -> ValueTypes.defaults().withCompareTo(Label.class));
+        final DeepEqualizer labels = withOptions()
+                .valueTypes(ValueTypes.defaults().withCompareTo(Label.class, l -> l.text.toLowerCase().hashCode()))
+                .orderLenient()
+                .build();
+        final TypeToken<List<Label>> listOfLabels = new TypeToken<List<Label>>() {};
+        assertTrue(labels.deepEquals(listOfLabels,
+                                     ImmutableList.of(new Label("a"), new Label("B")),
+                                     ImmutableList.of(new Label("b"), new Label("A"))));
+        assertEquals(labels.deepHashCode(Label.class, new Label("a")),
+                     labels.deepHashCode(Label.class, new Label("A")));
+        assertNotEquals(labels.deepHashCode(Label.class, new Label("a")),
+                        labels.deepHashCode(Label.class, new Label("b")));
+
+        // property by property otherwise: BigDecimal has methods that take arguments
+        assertThrows(IllegalArgumentException.class,
+                     () -> withOptions().valueTypes(ValueTypes.none()).deepEquals(Payment.class, x, y));
+    }
+
+    // the build runs the suite against the Java 8 classes, then against the jar with the
+    // release given: the classes of the overlays up to that release are loaded instead
+    @Test
+    void _33_multiReleaseOverlay() throws Exception {
+        assertEquals(release(11), classFileVersion("deepequals/Mismatch.class"));
+        assertEquals(release(17), classFileVersion("deepequals/ToleranceKernels.class"));
+    }
+
+    static final class Reading {
+        private final double value;
+        private final Double boxed;
+        private final double[] samples;
+        private final float[] levels;
+        Reading(final double value, final Double boxed, final double[] samples, final float[] levels) {
+            this.value = value; this.boxed = boxed; this.samples = samples; this.levels = levels;
+        }
+        public double value() { return value; }
+        public Double boxed() { return boxed; }
+        public double[] samples() { return samples; }
+        public float[] levels() { return levels; }
+    }
+
+    // long enough for several vectors and a tail, with a NaN, an infinity and a zero of each sign
+    private static Reading reading(final double noise) {
+        final double[] samples = new double[37];
+        final float[] levels = new float[37];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = i * 1.5 + noise;
+            levels[i] = (float) (i * 1.5 + noise);
+        }
+        samples[3] = Double.NaN;
+        levels[3] = Float.NaN;
+        samples[5] = Double.POSITIVE_INFINITY;
+        levels[5] = Float.NEGATIVE_INFINITY;
+        samples[0] = noise > 0 ? 0.0 : -0.0;
+        levels[0] = noise > 0 ? 0.0f : -0.0f;
+        return new Reading(100 + noise, 100 + noise, samples, levels);
+    }
+
+    @Test
+    void _34_tolerance() {
+        final Reading x = reading(0);
+        assertTrue(deepEquals(Reading.class, x, reading(0)));
+        assertFalse(deepEquals(Reading.class, x, reading(1e-9)));
+
+        final DeepEqualizer absolute = withOptions().tolerance(Tolerance.absolute(1e-6)).build();
+        assertTrue(absolute.deepEquals(Reading.class, x, reading(1e-9)));
+        assertTrue(absolute.deepEquals(Reading.class, x, reading(-1e-9)));
+        assertFalse(absolute.deepEquals(Reading.class, x, reading(1e-3)));
+        assertEquals(absolute.deepHashCode(Reading.class, x), absolute.deepHashCode(Reading.class, reading(1e-9)));
+        final Reading late = reading(0);
+        late.samples()[36] += 1e-3;
+        assertFalse(absolute.deepEquals(Reading.class, x, late));
+        final Reading nan = reading(0);
+        nan.levels()[20] = Float.NaN;
+        assertFalse(absolute.deepEquals(Reading.class, x, nan));
+        assertFalse(absolute.deepEquals(Reading.class, x, new Reading(100, null, x.samples(), x.levels())));
+
+        // 1e-9 is within 1e-10 of 100, not of 0
+        final DeepEqualizer relative = withOptions().tolerance(Tolerance.relative(1e-10)).build();
+        assertTrue(relative.deepEquals(Reading.class,
+                                       new Reading(100, 100.0, new double[0], new float[0]),
+                                       new Reading(100 + 1e-9, 100 + 1e-9, new double[0], new float[0])));
+        assertFalse(relative.deepEquals(Reading.class,
+                                        new Reading(0, 0.0, new double[0], new float[0]),
+                                        new Reading(1e-9, 1e-9, new double[0], new float[0])));
+
+        final DeepEqualizer ulps = withOptions().tolerance(Tolerance.ulps(1)).build();
+        final Reading next = reading(0);
+        next.samples()[30] = Math.nextUp(next.samples()[30]);
+        next.levels()[30] = Math.nextDown(next.levels()[30]);
+        assertTrue(ulps.deepEquals(Reading.class, x, next));
+        next.levels()[31] = Math.nextUp(Math.nextUp(next.levels()[31]));
+        assertFalse(ulps.deepEquals(Reading.class, x, next));
+        assertTrue(ulps.deepEquals(Reading.class,
+                                   new Reading(-Double.MIN_VALUE, null, new double[0], new float[0]),
+                                   new Reading(0, null, new double[0], new float[0])));
+
+        // a comparator of the type comes first
+        assertTrue(withOptions()
+                           .tolerance(Tolerance.absolute(1e-6))
+                           .override(comparator(double[].class, (a, b) -> a.length == b.length))
+                           .deepEquals(Reading.class, x, late));
+
+        assertThrows(IllegalArgumentException.class, () -> Tolerance.absolute(-1));
+        assertThrows(IllegalArgumentException.class, () -> Tolerance.relative(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> Tolerance.ulps(-1));
+    }
+
+    private static Stream<Bean> beans(final int from, final int to) {
+        return IntStream.range(from, to).mapToObj(i -> new Bean(i, String.valueOf(i)));
+    }
+
+    @Test
+    void _35_streams() {
+        final TypeToken<Bean> tt = TypeToken.of(Bean.class);
+        assertTrue(deepEquals(tt, beans(0, 5_000), beans(0, 5_000)));
+        assertTrue(deepEquals(tt, beans(0, 5_000).filter(b -> true), beans(0, 5_000)));
+        assertFalse(deepEquals(tt, beans(0, 5_000), beans(0, 4_999)));
+        assertFalse(deepEquals(tt, beans(0, 5_000).filter(b -> true), beans(0, 4_999).filter(b -> true)));
+        assertFalse(deepEquals(tt, beans(0, 5_000), beans(0, 5_000).map(b -> b.i() == 3_000 ? new Bean(0, "") : b)));
+        assertTrue(deepEquals(tt, Stream.empty(), Stream.empty()));
+
+        // read as far as the first mismatch only
+        assertFalse(deepEquals(tt,
+                               Stream.iterate(new Bean(0, "0"), b -> new Bean(b.i() + 1, String.valueOf(b.i() + 1))),
+                               Stream.generate(() -> new Bean(0, "0"))));
+
+        final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errContent));
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final DeepEqualizer parallel = withOptions().parallel(pool, 64).verbose().build();
+            assertTrue(parallel.deepEquals(tt, beans(0, 20_000), beans(0, 20_000)));
+            assertFalse(parallel.deepEquals(tt, beans(0, 20_000), beans(0, 20_000).map(
+                    b -> b.i() == 15_000 || b.i() == 12_345 ? new Bean(b.i(), "x") : b)));
+            assertEquals("[12345].s", get(errContent).trim());
+            assertFalse(parallel.deepEquals(tt, beans(0, 20_000).filter(b -> true), beans(0, 19_000).filter(b -> true)));
+            assertEquals("[19000]", get(errContent).trim());
+        } finally {
+            pool.shutdown();
+            System.setErr(null);
+        }
+
+        // out of order by up to 300 elements
+        final DeepEqualizer lenient = withOptions().orderLenient().build();
+        final Supplier<Stream<Bean>> shuffled = () -> IntStream.range(0, 9_600)
+                .map(i -> i % 600 < 300 ? i + 300 : i - 300)
+                .mapToObj(i -> new Bean(i, String.valueOf(i)));
+        assertTrue(lenient.deepEquals(tt, beans(0, 9_600), shuffled.get()));
+        assertTrue(lenient.deepEquals(tt, shuffled.get().filter(b -> true), beans(0, 9_600).filter(b -> true)));
+        assertFalse(lenient.deepEquals(tt, beans(0, 9_600), shuffled.get().map(b -> b.i() == 7 ? new Bean(8, "8") : b)));
+        assertFalse(lenient.deepEquals(tt, beans(0, 9_600).filter(b -> true), beans(0, 9_599)));
+        assertFalse(lenient.deepEquals(tt,
+                                       Stream.of(new Bean(1, "a"), new Bean(1, "a"), new Bean(2, "b")),
+                                       Stream.of(new Bean(1, "a"), new Bean(2, "b"), new Bean(2, "b"))));
+        assertThrows(IllegalStateException.class,
+                     () -> lenient.deepEquals(tt, beans(0, 9_600).spliterator(), shuffled.get().spliterator(), 100));
+    }
+
+    @Test
+    void _36_check() {
+        final State x = new State(ImmutableList.of(new Bean(1, "a"), new Bean(2, "b")),
+                                  ImmutableMap.of("k", new Bean(3, "c")));
+        final ComparisonResult equal = check(State.class, x, new State(x.items(), x.accounts()));
+        assertTrue(equal.equal());
+        assertNull(equal.reason());
+        assertTrue(equal.path().isEmpty());
+
+        final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errContent));
+        try {
+            final DeepEqualizer verbose = withOptions().verbose().build();
+            final ComparisonResult items = verbose.check(
+                    State.class,
+                    x,
+                    new State(ImmutableList.of(new Bean(1, "a"), new Bean(2, "x")), x.accounts()));
+            assertFalse(items.equal());
+            assertEquals(ImmutableList.of(ComparisonResult.Segment.Kind.PROPERTY,
+                                          ComparisonResult.Segment.Kind.INDEX,
+                                          ComparisonResult.Segment.Kind.PROPERTY),
+                         items.path().stream().map(ComparisonResult.Segment::kind).collect(toList()));
+            assertEquals(ImmutableList.of("items", 1, "s"),
+                         items.path().stream().map(ComparisonResult.Segment::value).collect(toList()));
+            assertEquals("b", items.left());
+            assertEquals("x", items.right());
+            assertEquals(DiffSink.Reason.NOT_EQUAL, items.reason());
+            assertTrue(items.toString().startsWith("items[1].s: "));
+            // only deepEquals prints
+            assertEquals("", get(errContent));
+        } finally {
+            System.setErr(null);
+        }
+
+        final ComparisonResult accounts = check(
+                State.class, x, new State(x.items(), ImmutableMap.of("k", new Bean(4, "c"))));
+        assertEquals(ComparisonResult.Segment.Kind.KEY, accounts.path().get(1).kind());
+        assertEquals("k", accounts.path().get(1).value());
+        assertEquals("accounts[k].i", accounts.toString().substring(0, accounts.toString().indexOf(':')));
+
+        final ComparisonResult shorter = check(
+                State.class, x, new State(ImmutableList.of(new Bean(1, "a")), x.accounts()));
+        assertEquals(DiffSink.Reason.ONLY_LEFT, shorter.reason());
+        assertEquals(new Bean(2, "b").s(), ((Bean) shorter.left()).s());
+        assertNull(shorter.right());
+    }
+
+    @SuppressWarnings({"serial", "unchecked", "rawtypes"})
+    @Test
+    void _37_checkPaths() {
+        final State state = new State(ImmutableList.of(new Bean(1, "a"), new Bean(2, "b")),
+                                      ImmutableMap.of("k", new Bean(3, "c")));
+        final Basket basket = new Basket(1, 2.5, ImmutableList.of(new Bean(1, "a")), new Bean[] {new Bean(2, "b")});
+        final TypeToken<State> states = TypeToken.of(State.class);
+        final TypeToken<Basket> baskets = TypeToken.of(Basket.class);
+        // differences below the roots, of every kind the engines tell apart
+        final List<Object[]> cases = ImmutableList.of(
+                new Object[] {states, state, new State(ImmutableList.of(new Bean(1, "a"), new Bean(2, "x")),
+                                                       state.accounts())},
+                new Object[] {states, state, new State(ImmutableList.of(new Bean(1, "a")), state.accounts())},
+                new Object[] {states, state, new State(ImmutableList.of(new Bean(1, "a"), new Bean(2, "b"),
+                                                                        new Bean(3, "c")),
+                                                       state.accounts())},
+                new Object[] {states, state, new State(Arrays.asList(new Bean(1, "a"), null), state.accounts())},
+                new Object[] {states, state, new State(state.items(), ImmutableMap.of("k", new Bean(4, "c")))},
+                new Object[] {states, state, new State(state.items(), ImmutableMap.of("j", new Bean(3, "c")))},
+                new Object[] {states, state, new State(state.items(), ImmutableMap.of("k", new Bean(3, "c"),
+                                                                                      "j", new Bean(3, "c")))},
+                new Object[] {baskets, basket, new Basket(2, 2.5, basket.beans(), basket.spares())},
+                new Object[] {baskets, basket, new Basket(1, 2.6, basket.beans(), basket.spares())},
+                new Object[] {baskets, basket, new Basket(1, 2.5, ImmutableList.of(new Bean(1, null)),
+                                                          basket.spares())},
+                new Object[] {baskets, basket, new Basket(1, 2.5, basket.beans(), new Bean[] {new Bean(3, "b")})},
+                new Object[] {baskets, basket, new Basket(1, 2.5, basket.beans(), new Bean[0])},
+                new Object[] {new TypeToken<Supplier<Set<Integer>>>() {},
+                              (Supplier<Set<Integer>>) () -> ImmutableSet.of(1, 2),
+                              (Supplier<Set<Integer>>) () -> ImmutableSet.of(1)},
+                new Object[] {new TypeToken<Supplier<Optional<Bean>>>() {},
+                              (Supplier<Optional<Bean>>) () -> Optional.of(new Bean(1, "a")),
+                              (Supplier<Optional<Bean>>) Optional::empty},
+                new Object[] {new TypeToken<Supplier<int[]>>() {},
+                              (Supplier<int[]>) () -> new int[] {1, 2},
+                              (Supplier<int[]>) () -> new int[] {1, 3}});
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (final DeepEqualizer equalizer : ImmutableList.of(withOptions().build(),
+                                                                  withOptions().compiled().build(),
+                                                                  withOptions().orderLenient().build(),
+                                                                  withOptions().orderLenient().compiled().build(),
+                                                                  withOptions().memoizeByIdentity().build(),
+                                                                  withOptions().parallel(pool, 1).build())) {
+                for (final Object[] c : cases) {
+                    final TypeToken tt = (TypeToken) c[0];
+                    assertFalse(equalizer.deepEquals(tt, c[1], c[2]));
+                    final ComparisonResult result = equalizer.check(tt, c[1], c[2]);
+                    assertFalse(result.equal());
+                    assertFalse(result.path().isEmpty(), result::toString);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int classFileVersion(final String name) throws Exception {
+        try (DataInputStream in = new DataInputStream(
+                DeepEquals.class.getClassLoader().getResourceAsStream(name))) {
+            in.readInt();
+            in.readUnsignedShort();
+            return in.readUnsignedShort();
+        }
+    }
+
+    private static List<String> paths(final Comparison<?> c) {
+        final List<String> result = new ArrayList<>();
+        c.forEachDifference((path, left, right, reason) -> result.add(path));
+        return result;
+    }
+
     @Test
     void class_not() {
         class Foo {
@@ -496,6 +1470,42 @@ class DeepEqualsTest {
         assertEquals("getString", get(errContent));
     }
 
+    @SuppressWarnings("serial")
+    @Test
+    void verbosePathOfNestedMismatches() {
+        final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errContent));
+        try {
+            withOptions()
+                    .verbose()
+                    .deepEquals(new TypeToken<List<List<Bean>>>() {},
+                                ImmutableList.of(ImmutableList.of(), ImmutableList.of(new Bean(1, "a"))),
+                                ImmutableList.of(ImmutableList.of(), ImmutableList.of(new Bean(1, "b"))));
+            assertEquals("[1][0].s", get(errContent));
+            // failed attempts to match elements do not show up
+            withOptions()
+                    .verbose()
+                    .orderLenient()
+                    .deepEquals(new TypeToken<Map<String, List<Bean>>>() {},
+                                ImmutableMap.of("k", ImmutableList.of(new Bean(1, "a"), new Bean(2, "b"))),
+                                ImmutableMap.of("k", ImmutableList.of(new Bean(2, "b"), new Bean(1, "x"))));
+            assertEquals("[k]", get(errContent));
+        } finally {
+            System.setErr(null);
+        }
+    }
+
+    @Test
+    void exceptionsThrownByPropertiesPropagate() {
+        final IllegalStateException thrown = new IllegalStateException();
+        class Foo {
+            public String getString() { throw thrown; }
+        }
+        assertSame(thrown,
+                   assertThrows(IllegalStateException.class,
+                                () -> deepEquals(Foo.class, new Foo(), new Foo())));
+    }
+
     @Test
     void bridgeMethods() {
         class Bar {
@@ -547,6 +1557,12 @@ class DeepEqualsTest {
                 .allMatch(i -> deepEquals(tt, xs[i], xs[i + 1]));
     }
 
+    // the class file version of an overlay if the release under test has it, of Java 8 otherwise
+    private static int release(final int overlay) {
+        final String release = System.getProperty("deepequals.release");
+        return release != null && Integer.parseInt(release) >= overlay ? 44 + overlay : 52;
+    }
+
     private static String get(final ByteArrayOutputStream err) {
         final String result = err.toString().trim();
         err.reset();
@@ -7,9 +7,9 @@ import org.junit.jupiter.api.Test;
 import java.util.function.Function;
 
 import static deepequals.DeepEquals.comparator;
-import static deepequals.DeepEquals.deepEquals;
-import static deepequals.DeepEquals.deepEqualsTypeUnsafe;
-import static deepequals.DeepEquals.withOptions;
+import static deepequals.test.Engines.deepEquals;
+import static deepequals.test.Engines.deepEqualsTypeUnsafe;
+import static deepequals.test.Engines.withOptions;
 import static java.util.function.Function.identity;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -0,0 +1,80 @@
+package deepequals.test;
+
+import com.google.common.reflect.TypeToken;
+import deepequals.Comparison;
+import deepequals.ComparisonResult;
+import deepequals.DeepEqualizer;
+import deepequals.DeepEquals;
+import deepequals.DeepEquals.WithOptions;
+import deepequals.DiffSink;
+
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+// the entry points of DeepEquals, on the engine the suite runs against: the build runs it
+// once more with -Ddeepequals.engine=compiled, see the surefire executions. Imported one by
+// one, they shadow those of DeepEquals.*
+@SuppressWarnings({"rawtypes", "UnstableApiUsage"})
+public final class Engines {
+    private static final boolean COMPILED = "compiled".equals(System.getProperty("deepequals.engine"));
+    private static final DeepEqualizer DEFAULT = withOptions().build();
+
+    private Engines() {}
+
+    public static <T> ComparisonResult check(final Class<T> c, final T x, final T y) {
+        return DEFAULT.check(c, x, y);
+    }
+
+    public static <T> ComparisonResult check(final TypeToken<T> tt, final T x, final T y) {
+        return DEFAULT.check(tt, x, y);
+    }
+
+    public static <T> Comparison<T> compare(final Class<T> c, final T x, final T y) {
+        return DEFAULT.compare(c, x, y);
+    }
+
+    public static <T> Comparison<T> compare(final TypeToken<T> tt, final T x, final T y) {
+        return DEFAULT.compare(tt, x, y);
+    }
+
+    public static <T> boolean deepEquals(final Class<T> c, final T x, final T y) {
+        return DEFAULT.deepEquals(c, x, y);
+    }
+
+    public static <T> boolean deepEquals(final TypeToken<T> tt, final T x, final T y) {
+        return DEFAULT.deepEquals(tt, x, y);
+    }
+
+    public static <T> boolean deepEquals(final TypeToken<T> tt, final Stream<T> x, final Stream<T> y) {
+        return DEFAULT.deepEquals(tt, x, y);
+    }
+
+    public static <T> boolean deepEquals(final TypeToken<T> tt, final Spliterator<T> x, final Spliterator<T> y) {
+        return DEFAULT.deepEquals(tt, x, y);
+    }
+
+    public static boolean deepEqualsTypeUnsafe(final Object classOrTypeToken, final Object x, final Object y) {
+        return DEFAULT.deepEqualsTypeUnsafe(classOrTypeToken, x, y);
+    }
+
+    public static <T> int deepHashCode(final Class<T> c, final T x) {
+        return DEFAULT.deepHashCode(c, x);
+    }
+
+    public static <T> int deepHashCode(final TypeToken<T> tt, final T x) {
+        return DEFAULT.deepHashCode(tt, x);
+    }
+
+    public static <T> int diff(final Class<T> c, final T x, final T y, final DiffSink sink) {
+        return DEFAULT.diff(c, x, y, sink);
+    }
+
+    public static <T> int diff(final TypeToken<T> tt, final T x, final T y, final DiffSink sink) {
+        return DEFAULT.diff(tt, x, y, sink);
+    }
+
+    public static WithOptions withOptions() {
+        final WithOptions result = DeepEquals.withOptions();
+        return COMPILED ? result.compiled() : result;
+    }
+}
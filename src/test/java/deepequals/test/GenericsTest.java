@@ -10,7 +10,7 @@ import java.util.function.Supplier;
 
 import static deepequals.DeepEquals.comparator;
 import static deepequals.DeepEquals.field;
-import static deepequals.DeepEquals.withOptions;
+import static deepequals.test.Engines.withOptions;
 import static java.lang.Math.abs;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
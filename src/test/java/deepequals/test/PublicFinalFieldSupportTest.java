@@ -1,15 +1,18 @@
 package deepequals.test;
 
 import deepequals.DeepEquals;
+import deepequals.Tolerance;
 import org.junit.jupiter.api.Test;
 
 import java.util.function.Supplier;
 
 import static deepequals.DeepEquals.comparator;
-import static deepequals.DeepEquals.deepEquals;
 import static deepequals.DeepEquals.field;
-import static deepequals.DeepEquals.withOptions;
+import static deepequals.test.Engines.deepEquals;
+import static deepequals.test.Engines.deepHashCode;
+import static deepequals.test.Engines.withOptions;
 import static java.lang.Math.abs;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -98,6 +101,25 @@ final class PublicFinalFieldSupportTest {
                      () -> deepEquals(FooCycle.class, foo1, foo2));
     }
 
+    static final class WithStaticFields {
+        public static final int ANSWER = 42;
+        public static final double RATE = Math.random();
+        public static final String NAME = uniqueString();
+        public final int i;
+        WithStaticFields(final int i) { this.i = i; }
+    }
+    @Test
+    void staticFields() {
+        // a static field reads the same for both objects: its accessor ignores them
+        assertTrue(deepEquals(WithStaticFields.class, new WithStaticFields(1), new WithStaticFields(1)));
+        assertFalse(deepEquals(WithStaticFields.class, new WithStaticFields(1), new WithStaticFields(2)));
+        assertEquals(deepHashCode(WithStaticFields.class, new WithStaticFields(1)),
+                     deepHashCode(WithStaticFields.class, new WithStaticFields(1)));
+        assertTrue(withOptions()
+                           .tolerance(Tolerance.absolute(1e-9))
+                           .deepEquals(WithStaticFields.class, new WithStaticFields(1), new WithStaticFields(1)));
+    }
+
     @Test
     void overrideClass() {
         class Foo {
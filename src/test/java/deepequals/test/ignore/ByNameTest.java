@@ -2,8 +2,8 @@ package deepequals.test.ignore;
 
 import org.junit.jupiter.api.Test;
 
-import static deepequals.DeepEquals.withOptions;
 import static deepequals.MethodPredicates.methods;
+import static deepequals.test.Engines.withOptions;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ByNameTest {
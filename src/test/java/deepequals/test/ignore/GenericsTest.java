@@ -4,8 +4,8 @@ import com.google.common.reflect.TypeToken;
 import deepequals.DeepEquals;
 import org.junit.jupiter.api.Test;
 
-import static deepequals.DeepEquals.withOptions;
 import static deepequals.MethodPredicates.methods;
+import static deepequals.test.Engines.withOptions;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
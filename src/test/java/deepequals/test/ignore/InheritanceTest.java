@@ -3,8 +3,8 @@ package deepequals.test.ignore;
 import deepequals.DeepEquals;
 import org.junit.jupiter.api.Test;
 
-import static deepequals.DeepEquals.withOptions;
 import static deepequals.MethodPredicates.methods;
+import static deepequals.test.Engines.withOptions;
 import static deepequals.test.ignore.InheritanceTest.Derived.bar;
 import static deepequals.test.ignore.InheritanceTest.Derived.foo;
 import static org.junit.jupiter.api.Assertions.assertFalse;